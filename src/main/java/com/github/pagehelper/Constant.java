@@ -36,4 +36,8 @@ public interface Constant {
     String PAGEPARAMETER_FIRST = "First" + SUFFIX_PAGE;
     //第二个分页参数
     String PAGEPARAMETER_SECOND = "Second" + SUFFIX_PAGE;
+    //keyset 分页子查询中的 offset 参数
+    String PAGEPARAMETER_OFFSET = "Offset" + SUFFIX_PAGE;
+    //keyset 分页的 limit 参数
+    String PAGEPARAMETER_LIMIT = "Limit" + SUFFIX_PAGE;
 }
@@ -24,6 +24,8 @@
 
 package com.github.pagehelper;
 
+import com.github.pagehelper.page.PageContext;
+import com.github.pagehelper.page.PageMethod;
 import com.github.pagehelper.util.SqlSafeUtil;
 import com.github.pagehelper.util.StackTraceUtil;
 import org.apache.ibatis.logging.Log;
@@ -32,6 +34,11 @@ import org.apache.ibatis.logging.LogFactory;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Mybatis - 分页对象
@@ -114,6 +121,10 @@ public class Page<E> extends ArrayList<E> implements Closeable {
      * 转换count查询时保留子查询的 order by 排序
      */
     private              Boolean                   keepSubSelectOrderBy;
+    /**
+     * 预取的页数，大于 1 时一次查询多页数据，后续页直接从缓存中获取
+     */
+    private              int                       prefetch;
 
     public Page() {
         super();
@@ -435,6 +446,28 @@ public class Page<E> extends ArrayList<E> implements Closeable {
         return this;
     }
 
+    /**
+     * 预取从当前页开始的 pages 页数据，只执行一次分页查询，多出的数据缓存后供后续页使用，后续页也不再执行 count 查询
+     * <p>
+     * 后续页同样需要调用 prefetch 才会从缓存获取，缓存通过 prefetchCache 和 prefetch.* 参数配置，数据可能不是最新的。
+     * 缓存的数据在会话之间共享，结果对象需要实现 {@link java.io.Serializable}，每次从缓存获取时反序列化得到新的对象，否则不缓存
+     *
+     * @param pages 预取的页数
+     * @return
+     */
+    public Page<E> prefetch(int pages) {
+        this.prefetch = pages;
+        return this;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
     /**
      * 转换count查询时保留查询的 order by 排序
      *
@@ -528,6 +561,91 @@ public class Page<E> extends ArrayList<E> implements Closeable {
         return (PageSerializable<E>) this.toPageSerializable();
     }
 
+    /**
+     * 在 executor 中异步执行分页查询，分页参数只在执行查询的线程中有效，并且会从当前线程中取走：
+     * <pre>
+     * Future&lt;Page&lt;User&gt;&gt; future = PageHelper.startPage(1, 10).doSelectPageAsync(new ISelect() {
+     *     public void doSelect() {
+     *         userMapper.selectAll();
+     *     }
+     * }, executor);
+     * </pre>
+     * select 中使用的 Mapper 必须能在其他线程中使用，例如 Spring 中的 SqlSessionTemplate
+     *
+     * @param select
+     * @param executor
+     * @return
+     */
+    public <E> Future<Page<E>> doSelectPageAsync(ISelect select, Executor executor) {
+        return doSelectPageAsync(select, executor, false);
+    }
+
+    /**
+     * 在 executor 中异步执行分页查询
+     * <p>
+     * concurrentCount=true 时 count 查询和分页查询同时执行，此时不支持分页合理化（reasonable=true 时仍然按顺序执行）。
+     * count 查询没有被 executor 及时执行时，会在分页查询完成后直接在当前任务中执行，不会因为线程池满而死锁
+     *
+     * @param select
+     * @param executor
+     * @param concurrentCount 是否同时执行 count 查询
+     * @return
+     */
+    public <E> Future<Page<E>> doSelectPageAsync(final ISelect select, Executor executor, boolean concurrentCount) {
+        //取走当前线程中的分页参数，避免影响当前线程后续的查询
+        if (PageMethod.getLocalPage() == this) {
+            PageMethod.clearPage();
+        }
+        FutureTask<Page<E>> task;
+        if (concurrentCount && count && !orderByOnly && (reasonable == null || !reasonable)) {
+            final Page<Object> countPage = new Page<Object>(1, -1, true);
+            countPage.setCountColumn(countColumn);
+            countPage.setDialectClass(dialectClass);
+            countPage.setBoundSqlInterceptor(boundSqlInterceptor);
+            countPage.setKeepOrderBy(keepOrderBy);
+            countPage.setKeepSubSelectOrderBy(keepSubSelectOrderBy);
+            final FutureTask<Long> countTask = new FutureTask<Long>(new PageContext(countPage).wrap(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    select.doSelect();
+                    return countPage.getTotal();
+                }
+            }));
+            this.count = false;
+            this.reasonable = false;
+            task = new FutureTask<Page<E>>(new PageContext(this).wrap(new Callable<Page<E>>() {
+                @Override
+                public Page<E> call() throws Exception {
+                    select.doSelect();
+                    //count 查询已经开始或完成时 run 不会重复执行
+                    countTask.run();
+                    try {
+                        setTotal(countTask.get());
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof Exception) {
+                            throw (Exception) cause;
+                        }
+                        throw new PageException(cause);
+                    }
+                    count = true;
+                    return (Page<E>) Page.this;
+                }
+            }));
+            executor.execute(countTask);
+        } else {
+            task = new FutureTask<Page<E>>(new PageContext(this).wrap(new Callable<Page<E>>() {
+                @Override
+                public Page<E> call() {
+                    select.doSelect();
+                    return (Page<E>) Page.this;
+                }
+            }));
+        }
+        executor.execute(task);
+        return task;
+    }
+
     public long doCount(ISelect select) {
         this.pageSizeZero = true;
         this.pageSize = 0;
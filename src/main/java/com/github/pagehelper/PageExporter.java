@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper;
+
+import com.github.pagehelper.page.PageContext;
+import com.github.pagehelper.page.PageMethod;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 并行导出，先执行一次 count 查询，然后按 chunkSize 将结果拆分为多段，每段使用单独的 SqlSession 在线程池中查询：
+ * <pre>
+ * long rows = new PageExporter&lt;User&gt;(sqlSessionFactory, executorService)
+ *         .chunkSize(5000).parallelism(4)
+ *         .export(new PageExporter.Query&lt;User&gt;() {
+ *             public List&lt;User&gt; select(SqlSession sqlSession) {
+ *                 return sqlSession.getMapper(UserMapper.class).selectAll();
+ *             }
+ *         }, new PageExporter.RowHandler&lt;User&gt;() {
+ *             public void handle(User row) {
+ *                 writer.write(row);
+ *             }
+ *         });
+ * </pre>
+ * 同时最多有 parallelism 段在查询或等待处理，处理数据的速度跟不上时不会继续提交查询。
+ * RowHandler 在调用 export 的线程中执行，ordered=true（默认）时按分段顺序输出，否则按查询完成的顺序输出。
+ * 查询需要有确定的排序，否则不同分段的数据可能重复或遗漏。
+ *
+ * @author liuzh
+ */
+public class PageExporter<E> {
+    private final SqlSessionFactory sqlSessionFactory;
+    private final ExecutorService   executorService;
+    private       int               chunkSize   = 1000;
+    private       int               parallelism = Runtime.getRuntime().availableProcessors();
+    private       boolean           ordered     = true;
+
+    public PageExporter(SqlSessionFactory sqlSessionFactory, ExecutorService executorService) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.executorService = executorService;
+    }
+
+    /**
+     * 每段查询的行数，默认 1000
+     *
+     * @param chunkSize
+     * @return
+     */
+    public PageExporter<E> chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new PageException("chunkSize 必须大于 0");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * 同时查询的段数，默认为 CPU 核数，同时也限制了等待处理的数据量
+     *
+     * @param parallelism
+     * @return
+     */
+    public PageExporter<E> parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new PageException("parallelism 必须大于 0");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 是否按顺序输出，默认 true
+     *
+     * @param ordered
+     * @return
+     */
+    public PageExporter<E> ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * 执行导出
+     *
+     * @param query   查询
+     * @param handler 处理每一行数据
+     * @return 导出的行数
+     */
+    public long export(final Query<E> query, RowHandler<E> handler) {
+        long total = count(query);
+        long exported = 0;
+        long offset = 0;
+        LinkedList<Future<List<E>>> running = new LinkedList<Future<List<E>>>();
+        CompletionService<List<E>> completionService = new ExecutorCompletionService<List<E>>(executorService);
+        try {
+            while (offset < total || !running.isEmpty()) {
+                //提交查询，直到达到并行数
+                while (offset < total && running.size() < parallelism) {
+                    Callable<List<E>> chunk = chunk(query, offset, (int) Math.min(chunkSize, total - offset));
+                    running.add(ordered ? executorService.submit(chunk) : completionService.submit(chunk));
+                    offset += chunkSize;
+                }
+                Future<List<E>> future = ordered ? running.getFirst() : completionService.take();
+                running.remove(future);
+                for (E row : future.get()) {
+                    handler.handle(row);
+                    exported++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PageException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new PageException(e.getCause());
+        } finally {
+            for (Future<List<E>> future : running) {
+                future.cancel(true);
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * 查询总数
+     *
+     * @param query
+     * @return
+     */
+    protected long count(Query<E> query) {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+            Page<E> page = PageMethod.startPage(1, -1, true);
+            query.select(sqlSession);
+            return page.getTotal();
+        } finally {
+            PageMethod.clearPage();
+            sqlSession.close();
+        }
+    }
+
+    /**
+     * 查询一段数据
+     *
+     * @param query
+     * @param offset
+     * @param limit
+     * @return
+     */
+    protected Callable<List<E>> chunk(final Query<E> query, long offset, int limit) {
+        Page<E> page = new Page<E>(new int[]{(int) Math.min(offset, Integer.MAX_VALUE), limit}, false);
+        page.setStartRow(offset);
+        page.setEndRow(offset + limit);
+        page.setReasonable(false);
+        return new PageContext(page).wrap(new Callable<List<E>>() {
+            @Override
+            public List<E> call() {
+                SqlSession sqlSession = sqlSessionFactory.openSession();
+                try {
+                    return query.select(sqlSession);
+                } finally {
+                    sqlSession.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * 查询方法，使用参数中的 SqlSession 执行一次查询
+     */
+    public interface Query<E> {
+        List<E> select(SqlSession sqlSession);
+    }
+
+    /**
+     * 处理查询结果
+     */
+    public interface RowHandler<E> {
+        void handle(E row);
+    }
+}
@@ -88,6 +88,10 @@ public class PageHelper extends PageMethod implements Dialect, BoundSqlIntercept
         return autoDialect.getDelegate().processParameterObject(ms, parameterObject, boundSql, pageKey);
     }
 
+    public Object processParameterObject(MappedStatement ms, Object parameterObject, BoundSql boundSql, RowBounds rowBounds, CacheKey pageKey) {
+        return autoDialect.getDelegate().processParameterObject(ms, parameterObject, boundSql, rowBounds, pageKey);
+    }
+
     @Override
     public boolean beforePage(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
         return autoDialect.getDelegate().beforePage(ms, parameterObject, rowBounds);
@@ -114,18 +118,33 @@ public class PageHelper extends PageMethod implements Dialect, BoundSqlIntercept
 
     @Override
     public void afterAll() {
+        afterAll(RowBounds.DEFAULT);
+    }
+
+    /**
+     * 使用 {@link PageRequest} 时分页参数没有设置到当前线程，不清除当前线程中通过 startPage 设置的参数
+     *
+     * @param rowBounds
+     */
+    public void afterAll(RowBounds rowBounds) {
         //这个方法即使不分页也会被执行，所以要判断 null
         AbstractHelperDialect delegate = autoDialect.getDelegate();
         if (delegate != null) {
             delegate.afterAll();
             autoDialect.clearDelegate();
         }
-        clearPage();
+        if (!(rowBounds instanceof PageRequest)) {
+            clearPage();
+        }
     }
 
     @Override
     public BoundSql doBoundSql(BoundSqlInterceptor.Type type, BoundSql boundSql, CacheKey cacheKey) {
-        Page<Object> localPage = getLocalPage();
+        return doBoundSql(type, boundSql, cacheKey, RowBounds.DEFAULT);
+    }
+
+    public BoundSql doBoundSql(BoundSqlInterceptor.Type type, BoundSql boundSql, CacheKey cacheKey, RowBounds rowBounds) {
+        Page<Object> localPage = rowBounds instanceof PageRequest ? (Page<Object>) ((PageRequest) rowBounds).getPage() : getLocalPage();
         BoundSqlInterceptor.Chain chain = localPage != null ? localPage.getChain() : null;
         if (chain == null) {
             BoundSqlInterceptor boundSqlInterceptor = localPage != null ? localPage.getBoundSqlInterceptor() : null;
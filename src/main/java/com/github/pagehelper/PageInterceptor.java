@@ -27,6 +27,8 @@ package com.github.pagehelper;
 import com.github.pagehelper.cache.Cache;
 import com.github.pagehelper.cache.CacheFactory;
 import com.github.pagehelper.page.PageMethod;
+import com.github.pagehelper.page.PagePrefetch;
+import com.github.pagehelper.page.PageWindowCount;
 import com.github.pagehelper.util.ExecutorUtil;
 import com.github.pagehelper.util.MSUtils;
 import com.github.pagehelper.util.StringUtil;
@@ -36,6 +38,7 @@ import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.plugin.*;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -43,6 +46,7 @@ import org.apache.ibatis.session.RowBounds;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -67,6 +71,8 @@ public class PageInterceptor implements Interceptor {
     private static       boolean                        debug                 = false;
     protected            Cache<String, MappedStatement> msCountMap            = null;
     protected            CountMsIdGen                   countMsIdGen          = CountMsIdGen.DEFAULT;
+    protected            PagePrefetch                   pagePrefetch          = null;
+    protected            PageWindowCount                pageWindowCount       = null;
     private volatile     Dialect                        dialect;
     private              String                         countSuffix           = "_COUNT";
     private              String                         default_dialect_class = "com.github.pagehelper.PageHelper";
@@ -98,17 +104,19 @@ public class PageInterceptor implements Interceptor {
     protected void debugStackTraceLog() {
         if (isDebug()) {
             Page<Object> page = PageMethod.getLocalPage();
-            log.debug(page.getStackTrace());
+            if (page != null) {
+                log.debug(page.getStackTrace());
+            }
         }
     }
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        RowBounds rowBounds = (RowBounds) args[2];
         try {
-            Object[] args = invocation.getArgs();
             MappedStatement ms = (MappedStatement) args[0];
             Object parameter = args[1];
-            RowBounds rowBounds = (RowBounds) args[2];
             ResultHandler resultHandler = (ResultHandler) args[3];
             Executor executor = (Executor) invocation.getTarget();
             CacheKey cacheKey;
@@ -125,7 +133,9 @@ public class PageInterceptor implements Interceptor {
             }
             checkDialectExists();
             //对 boundSql 的拦截处理
-            if (dialect instanceof BoundSqlInterceptor.Chain) {
+            if (dialect instanceof PageHelper) {
+                boundSql = ((PageHelper) dialect).doBoundSql(BoundSqlInterceptor.Type.ORIGINAL, boundSql, cacheKey, rowBounds);
+            } else if (dialect instanceof BoundSqlInterceptor.Chain) {
                 boundSql = ((BoundSqlInterceptor.Chain) dialect).doBoundSql(BoundSqlInterceptor.Type.ORIGINAL, boundSql, cacheKey);
             }
             List resultList;
@@ -133,9 +143,30 @@ public class PageInterceptor implements Interceptor {
             if (!dialect.skip(ms, parameter, rowBounds)) {
                 //开启debug时，输出触发当前分页执行时的PageHelper调用堆栈
                 // 如果和当前调用堆栈不一致，说明在启用分页后没有消费，当前线程再次执行时消费，调用堆栈显示的方法使用不安全
-                debugStackTraceLog();
+                //使用 PageRequest 时分页参数不在当前线程中
+                Page page;
+                if (rowBounds instanceof PageRequest) {
+                    page = ((PageRequest) rowBounds).getPage();
+                } else {
+                    debugStackTraceLog();
+                    page = PageMethod.getLocalPage();
+                }
+                //多页预取时，优先从缓存中获取当前页
+                String prefetchKey = null;
+                if (resultHandler == null && pagePrefetch.isPrefetch(page)) {
+                    prefetchKey = pagePrefetch.getKey(executor, ms, parameter, boundSql, page);
+                    resultList = pagePrefetch.get(prefetchKey, page);
+                    if (resultList != null) {
+                        return dialect.afterPage(resultList, parameter, rowBounds);
+                    }
+                }
                 //判断是否需要进行 count 查询
                 if (dialect.beforeCount(ms, parameter, rowBounds)) {
+                    //通过 COUNT(*) OVER() 在分页查询中同时得到总数
+                    if (prefetchKey == null && pageWindowCount.isWindowCount(page, resultHandler)) {
+                        resultList = windowCountQuery(executor, ms, parameter, rowBounds, boundSql, cacheKey, page);
+                        return dialect.afterPage(resultList, parameter, rowBounds);
+                    }
                     //查询总数
                     Long count = count(executor, ms, parameter, rowBounds, null, boundSql);
                     //处理查询总数，返回 true 时继续分页查询，false 时直接返回
@@ -144,15 +175,21 @@ public class PageInterceptor implements Interceptor {
                         return dialect.afterPage(new ArrayList(), parameter, rowBounds);
                     }
                 }
-                resultList = ExecutorUtil.pageQuery(dialect, executor,
-                        ms, parameter, rowBounds, resultHandler, boundSql, cacheKey);
+                if (prefetchKey != null) {
+                    resultList = prefetchQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql, cacheKey, page, prefetchKey);
+                } else {
+                    resultList = ExecutorUtil.pageQuery(dialect, executor,
+                            ms, parameter, rowBounds, resultHandler, boundSql, cacheKey);
+                }
             } else {
                 //rowBounds用参数值，不使用分页插件处理时，仍然支持默认的内存分页
                 resultList = executor.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
             }
             return dialect.afterPage(resultList, parameter, rowBounds);
         } finally {
-            if (dialect != null) {
+            if (dialect instanceof PageHelper) {
+                ((PageHelper) dialect).afterAll(rowBounds);
+            } else if (dialect != null) {
                 dialect.afterAll();
             }
         }
@@ -173,6 +210,68 @@ public class PageInterceptor implements Interceptor {
         }
     }
 
+    /**
+     * 一次查询多页数据，缓存后返回当前页
+     */
+    private List prefetchQuery(Executor executor, MappedStatement ms, Object parameter,
+                               RowBounds rowBounds, ResultHandler resultHandler,
+                               BoundSql boundSql, CacheKey cacheKey, Page page, String prefetchKey) throws SQLException {
+        int pageSize = page.getPageSize();
+        long endRow = page.getEndRow();
+        //count 查询已经完成，这里只扩大分页查询的范围
+        page.setPageSize((int) Math.min((long) pageSize * page.getPrefetch(), Integer.MAX_VALUE));
+        page.setEndRow(page.getStartRow() + page.getPageSize());
+        List resultList;
+        try {
+            resultList = ExecutorUtil.pageQuery(dialect, executor,
+                    ms, parameter, rowBounds, resultHandler, boundSql, cacheKey);
+        } finally {
+            page.setPageSize(pageSize);
+            page.setEndRow(endRow);
+        }
+        pagePrefetch.put(prefetchKey, page, resultList);
+        return new ArrayList(resultList.subList(0, Math.min(pageSize, resultList.size())));
+    }
+
+    /**
+     * 分页查询同时读取总数列，无法得到总数时再执行 count 查询
+     */
+    private List windowCountQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                  BoundSql boundSql, CacheKey cacheKey, Page page) throws SQLException {
+        //分页查询会修改 boundSql 中的参数映射，count 查询使用原来的参数映射
+        BoundSql countBoundSql = boundSql;
+        if (boundSql.getParameterMappings() != null) {
+            countBoundSql = new BoundSql(ms.getConfiguration(), boundSql.getSql(),
+                    new ArrayList<ParameterMapping>(boundSql.getParameterMappings()), parameter);
+            Map<String, Object> additionalParameters = ExecutorUtil.getAdditionalParameter(boundSql);
+            for (String key : additionalParameters.keySet()) {
+                countBoundSql.setAdditionalParameter(key, additionalParameters.get(key));
+            }
+        }
+        PageWindowCount.State state = PageWindowCount.start();
+        List resultList;
+        try {
+            resultList = ExecutorUtil.pageQuery(dialect, executor,
+                    ms, parameter, rowBounds, null, boundSql, cacheKey);
+        } finally {
+            PageWindowCount.end();
+        }
+        Long count = state.getTotal();
+        if (count == null) {
+            if (state.isApplied() && resultList.isEmpty() && page.getStartRow() == 0) {
+                //第一页没有数据时总数就是 0
+                count = 0L;
+            } else {
+                //不支持窗口函数，当前页没有数据，或者结果来自缓存
+                count = count(executor, ms, parameter, rowBounds, null, countBoundSql);
+            }
+        }
+        if (!dialect.afterCount(count, parameter, rowBounds)) {
+            return new ArrayList();
+        }
+        return resultList;
+    }
+
     private Long count(Executor executor, MappedStatement ms, Object parameter,
                        RowBounds rowBounds, ResultHandler resultHandler,
                        BoundSql boundSql) throws SQLException {
@@ -201,6 +300,9 @@ public class PageInterceptor implements Interceptor {
 
     @Override
     public Object plugin(Object target) {
+        if (pageWindowCount != null) {
+            target = pageWindowCount.wrap(target);
+        }
         return Plugin.wrap(target, this);
     }
 
@@ -208,6 +310,12 @@ public class PageInterceptor implements Interceptor {
     public void setProperties(Properties properties) {
         //缓存 count ms
         msCountMap = CacheFactory.createCache(properties.getProperty("msCountCache"), "ms", properties);
+        //多页预取缓存
+        pagePrefetch = new PagePrefetch();
+        pagePrefetch.setProperties(properties);
+        //窗口函数 count
+        pageWindowCount = new PageWindowCount();
+        pageWindowCount.setProperties(properties);
         String dialectClass = properties.getProperty("dialect");
         if (StringUtil.isEmpty(dialectClass)) {
             dialectClass = default_dialect_class;
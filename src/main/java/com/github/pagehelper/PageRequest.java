@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper;
+
+/**
+ * 显式传递的分页参数，作为 Mapper 方法的 RowBounds 参数使用，不需要提前调用 PageHelper.startPage：
+ * <pre>
+ * List&lt;User&gt; list = userMapper.selectAll(PageRequest.of(1, 10).orderBy("id desc"));
+ * </pre>
+ * 分页参数只对当前这一次查询有效，不会设置到当前线程，不会因为没有消费而影响当前线程后续的查询。
+ * 查询前通过 startPage 设置但尚未消费的分页参数，不会被这次查询使用或清除。
+ * 分页结果和 PageHelper.startPage 一样，返回值为 {@link Page}，总数也会设置到 {@link #getTotal()}
+ *
+ * @author liuzh
+ */
+public class PageRequest extends PageRowBounds {
+    private final Page<?> page;
+
+    public PageRequest(Page<?> page) {
+        super((int) page.getStartRow(), page.getPageSize());
+        this.page = page;
+    }
+
+    /**
+     * 创建分页参数
+     *
+     * @param pageNum  页码
+     * @param pageSize 每页显示数量
+     * @return
+     */
+    public static PageRequest of(int pageNum, int pageSize) {
+        return of(pageNum, pageSize, true);
+    }
+
+    /**
+     * 创建分页参数
+     *
+     * @param pageNum  页码
+     * @param pageSize 每页显示数量
+     * @param count    是否进行count查询
+     * @return
+     */
+    public static PageRequest of(int pageNum, int pageSize, boolean count) {
+        return new PageRequest(new Page<Object>(pageNum, pageSize, count));
+    }
+
+    /**
+     * 排序
+     *
+     * @param orderBy
+     * @return
+     */
+    public PageRequest orderBy(String orderBy) {
+        page.setOrderBy(orderBy);
+        return this;
+    }
+
+    /**
+     * 转换count查询时保留 order by 排序
+     *
+     * @param keepOrderBy
+     * @return
+     */
+    public PageRequest keepOrderBy(boolean keepOrderBy) {
+        page.keepOrderBy(keepOrderBy);
+        return this;
+    }
+
+    /**
+     * 转换count查询时保留子查询的 order by 排序
+     *
+     * @param keepSubSelectOrderBy
+     * @return
+     */
+    public PageRequest keepSubSelectOrderBy(boolean keepSubSelectOrderBy) {
+        page.keepSubSelectOrderBy(keepSubSelectOrderBy);
+        return this;
+    }
+
+    /**
+     * 分页合理化
+     *
+     * @param reasonable
+     * @return
+     */
+    public PageRequest reasonable(Boolean reasonable) {
+        page.reasonable(reasonable);
+        return this;
+    }
+
+    /**
+     * 指定 count 列
+     *
+     * @param countColumn
+     * @return
+     */
+    public PageRequest countColumn(String countColumn) {
+        page.countColumn(countColumn);
+        return this;
+    }
+
+    /**
+     * 指定分页方言
+     *
+     * @param dialect
+     * @return
+     */
+    public PageRequest using(String dialect) {
+        page.using(dialect);
+        return this;
+    }
+
+    @Override
+    public Boolean getCount() {
+        return page.isCount();
+    }
+
+    @Override
+    public void setCount(Boolean count) {
+        page.setCount(count == null || count);
+    }
+
+    public <E> Page<E> getPage() {
+        return (Page<E>) page;
+    }
+}
@@ -26,6 +26,7 @@ package com.github.pagehelper.cache;
 
 import com.github.pagehelper.PageException;
 import com.github.pagehelper.PageProperties;
+import com.github.pagehelper.util.SqlFingerprint;
 import com.github.pagehelper.util.StringUtil;
 
 import java.lang.reflect.Constructor;
@@ -71,4 +72,17 @@ public abstract class CacheFactory {
         }
     }
 
+    /**
+     * 创建 SQL 改写缓存，使用空白规范化后的 SQL 指纹作为 key
+     *
+     * @param sqlCacheClass
+     * @param prefix
+     * @param properties
+     * @return
+     */
+    public static Cache<String, String> createSqlCache(String sqlCacheClass, String prefix, Properties properties) {
+        Cache<SqlFingerprint, SqlFingerprintCache.Entry> cache = createCache(sqlCacheClass, prefix, properties);
+        return new SqlFingerprintCache(cache);
+    }
+
 }
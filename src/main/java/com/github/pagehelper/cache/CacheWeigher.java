@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.cache;
+
+import com.github.pagehelper.util.SqlFingerprint;
+
+/**
+ * 估算缓存项占用的内存（字节），用于按 {@code maxWeightBytes} 限制缓存大小
+ *
+ * @author liuzh
+ */
+public abstract class CacheWeigher {
+    /**
+     * 对象头和引用的大致开销
+     */
+    private static final int OBJECT_OVERHEAD = 16;
+    /**
+     * String 对象以及内部数组的开销
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    /**
+     * 估算 key 和 value 的大小
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public static int weigh(Object key, Object value) {
+        long weight = weigh(key) + weigh(value);
+        return weight > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) weight;
+    }
+
+    private static long weigh(Object object) {
+        if (object == null) {
+            return 0;
+        } else if (object instanceof CharSequence) {
+            return STRING_OVERHEAD + 2L * ((CharSequence) object).length();
+        } else if (object instanceof SqlFingerprint) {
+            return OBJECT_OVERHEAD + 16;
+        } else if (object instanceof SqlFingerprintCache.Entry) {
+            SqlFingerprintCache.Entry entry = (SqlFingerprintCache.Entry) object;
+            return OBJECT_OVERHEAD + weigh(entry.getSql()) + weigh(entry.getValue());
+        }
+        return OBJECT_OVERHEAD;
+    }
+}
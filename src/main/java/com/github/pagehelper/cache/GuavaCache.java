@@ -26,6 +26,7 @@ package com.github.pagehelper.cache;
 
 import com.github.pagehelper.util.StringUtil;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
@@ -41,8 +42,18 @@ public class GuavaCache<K, V> implements Cache<K, V> {
 
     public GuavaCache(Properties properties, String prefix) {
         CacheBuilder cacheBuilder = CacheBuilder.newBuilder();
+        String maxWeightBytes = properties.getProperty(prefix + ".maxWeightBytes");
         String maximumSize = properties.getProperty(prefix + ".maximumSize");
-        if (StringUtil.isNotEmpty(maximumSize)) {
+        if (StringUtil.isNotEmpty(maxWeightBytes)) {
+            //按内存大小限制时忽略 maximumSize，二者不能同时使用
+            cacheBuilder.maximumWeight(Long.parseLong(maxWeightBytes));
+            cacheBuilder.weigher(new Weigher<Object, Object>() {
+                @Override
+                public int weigh(Object key, Object value) {
+                    return CacheWeigher.weigh(key, value);
+                }
+            });
+        } else if (StringUtil.isNotEmpty(maximumSize)) {
             cacheBuilder.maximumSize(Long.parseLong(maximumSize));
         } else {
             cacheBuilder.maximumSize(1000);
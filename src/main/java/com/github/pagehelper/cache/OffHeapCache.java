@@ -0,0 +1,265 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.cache;
+
+import com.github.pagehelper.util.StringUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 堆外 SQL 缓存，value 以 UTF-8 编码保存在 DirectByteBuffer 中，堆内只保留 key 到地址的索引，减少老年代中大量 SQL 字符串对 GC 的影响
+ * <p>
+ * 堆外内存划分为多个段循环写入，空间不足时淘汰最早写入的整段数据。只有 String 和 {@link SqlFingerprintCache.Entry}
+ * 会保存到堆外，其他类型（如 msCountCache 中的 MappedStatement）使用 {@link SimpleCache} 保存在堆内。
+ * <p>
+ * 每次命中都要解码 UTF-8，读取不比 GuavaCache 快，适合缓存大量 SQL 并且关注堆内存和 GC 的场景，
+ * 例如 5 万条 2KB 左右的 SQL，GuavaCache 约占用 97MB 堆内存，堆外缓存约 4MB（见 OffHeapCacheTest#testRetainedHeap）。
+ * <p>
+ * 支持的配置（prefix 为 count, page, ms 等）：
+ * <ul>
+ * <li>prefix.offHeapBytes: 堆外内存总大小，默认 64MB</li>
+ * <li>prefix.segmentBytes: 每段大小，默认 4MB，超过一段大小的 value 不缓存</li>
+ * </ul>
+ *
+ * @author liuzh
+ */
+public class OffHeapCache<K, V> implements Cache<K, V> {
+    private static final Charset UTF8          = Charset.forName("UTF-8");
+    private static final byte    TYPE_STRING   = 0;
+    private static final byte    TYPE_ENTRY    = 1;
+    private static final int     NULL_LENGTH   = -1;
+    /**
+     * 索引中表示 value 保存在堆内
+     */
+    private static final Long    HEAP          = -1L;
+
+    private final ByteBuffer[]      segments;
+    private final List<K>[]         segmentKeys;
+    private final int               segmentBytes;
+    private final Map<K, Long>      index = new HashMap<K, Long>();
+    private final ReadWriteLock     lock  = new ReentrantReadWriteLock();
+    private final Cache<K, V>       heapCache;
+    private       int               current;
+
+    public OffHeapCache(Properties properties, String prefix) {
+        long offHeapBytes = 64L * 1024 * 1024;
+        String value = properties.getProperty(prefix + ".offHeapBytes");
+        if (StringUtil.isNotEmpty(value)) {
+            offHeapBytes = Long.parseLong(value);
+        }
+        int segmentBytes = 4 * 1024 * 1024;
+        value = properties.getProperty(prefix + ".segmentBytes");
+        if (StringUtil.isNotEmpty(value)) {
+            segmentBytes = Integer.parseInt(value);
+        }
+        if (segmentBytes > offHeapBytes) {
+            segmentBytes = (int) offHeapBytes;
+        }
+        int count = (int) Math.max(2, offHeapBytes / segmentBytes);
+        this.segmentBytes = segmentBytes;
+        this.segments = new ByteBuffer[count];
+        this.segmentKeys = new List[count];
+        for (int i = 0; i < count; i++) {
+            segmentKeys[i] = new ArrayList<K>();
+        }
+        this.heapCache = new SimpleCache<K, V>(properties, prefix);
+    }
+
+    @Override
+    public V get(K key) {
+        lock.readLock().lock();
+        try {
+            Long address = index.get(key);
+            if (address == null) {
+                return null;
+            }
+            if (!HEAP.equals(address)) {
+                ByteBuffer buffer = segments[(int) (address >>> 32)].duplicate();
+                buffer.position((int) address.longValue());
+                return (V) read(buffer);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        //只有最后一次写入到堆内时才从堆内读取，避免堆外的段被淘汰后读到堆内更早的值
+        V value = heapCache.get(key);
+        if (value == null) {
+            removeIndex(key, HEAP);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        byte[][] data = encode(value);
+        if (data == null) {
+            heapCache.put(key, value);
+            lock.writeLock().lock();
+            try {
+                index.put(key, HEAP);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        int length = 1;
+        for (byte[] bytes : data) {
+            length += 4 + (bytes != null ? bytes.length : 0);
+        }
+        if (length > segmentBytes) {
+            //不缓存时移除旧值，避免读到过期的数据
+            removeIndex(key, null);
+            return;
+        }
+        Long old;
+        lock.writeLock().lock();
+        try {
+            ByteBuffer buffer = segments[current];
+            if (buffer == null || buffer.remaining() < length) {
+                buffer = nextSegment();
+            }
+            int position = buffer.position();
+            buffer.put(data.length == 1 ? TYPE_STRING : TYPE_ENTRY);
+            for (byte[] bytes : data) {
+                if (bytes == null) {
+                    buffer.putInt(NULL_LENGTH);
+                } else {
+                    buffer.putInt(bytes.length);
+                    buffer.put(bytes);
+                }
+            }
+            old = index.put(key, ((long) current << 32) | position);
+            segmentKeys[current].add(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (HEAP.equals(old)) {
+            //释放堆内的旧值
+            heapCache.put(key, null);
+        }
+    }
+
+    /**
+     * 移除 key 的索引，堆外的旧数据在所在段被淘汰时回收
+     *
+     * @param key
+     * @param expected 不为空时只在索引等于该值时移除
+     */
+    private void removeIndex(K key, Long expected) {
+        Long old;
+        lock.writeLock().lock();
+        try {
+            if (expected != null && !expected.equals(index.get(key))) {
+                return;
+            }
+            old = index.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (HEAP.equals(old)) {
+            heapCache.put(key, null);
+        }
+    }
+
+    /**
+     * 切换到下一段，该段已有数据时整段淘汰
+     *
+     * @return
+     */
+    private ByteBuffer nextSegment() {
+        if (segments[current] != null) {
+            current = (current + 1) % segments.length;
+        }
+        ByteBuffer buffer = segments[current];
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(segmentBytes);
+            segments[current] = buffer;
+        } else {
+            List<K> keys = segmentKeys[current];
+            for (K k : keys) {
+                Long address = index.get(k);
+                //key 可能已经写入到了其他段
+                if (address != null && (int) (address >>> 32) == current) {
+                    index.remove(k);
+                }
+            }
+            keys.clear();
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private byte[][] encode(V value) {
+        if (value instanceof String) {
+            return new byte[][]{((String) value).getBytes(UTF8)};
+        } else if (value instanceof SqlFingerprintCache.Entry) {
+            SqlFingerprintCache.Entry entry = (SqlFingerprintCache.Entry) value;
+            return new byte[][]{encode(entry.getSql()), encode(entry.getValue())};
+        }
+        return null;
+    }
+
+    private byte[] encode(String value) {
+        return value != null ? value.getBytes(UTF8) : null;
+    }
+
+    private Object read(ByteBuffer buffer) {
+        if (buffer.get() == TYPE_STRING) {
+            return readString(buffer);
+        }
+        String sql = readString(buffer);
+        return new SqlFingerprintCache.Entry(sql, readString(buffer));
+    }
+
+    private String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * @return 缓存的数量，包括保存在堆内的
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
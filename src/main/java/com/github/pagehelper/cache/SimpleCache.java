@@ -52,6 +52,8 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         } else {
             cacheBuilder.implementation(PerpetualCache.class);
         }
+        //按内存大小限制时，默认不再按数量淘汰
+        String maxWeightBytes = properties.getProperty(prefix + ".maxWeightBytes");
         String evictionClass = properties.getProperty(prefix + ".evictionClass");
         if (StringUtil.isNotEmpty(evictionClass)) {
             try {
@@ -59,7 +61,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
             } catch (ClassNotFoundException e) {
                 cacheBuilder.addDecorator(FifoCache.class);
             }
-        } else {
+        } else if (StringUtil.isEmpty(maxWeightBytes)) {
             cacheBuilder.addDecorator(FifoCache.class);
         }
         String flushInterval = properties.getProperty(prefix + ".flushInterval");
@@ -71,7 +73,11 @@ public class SimpleCache<K, V> implements Cache<K, V> {
             cacheBuilder.size(Integer.parseInt(size));
         }
         cacheBuilder.properties(properties);
-        CACHE = cacheBuilder.build();
+        if (StringUtil.isNotEmpty(maxWeightBytes)) {
+            CACHE = new WeightedCache(cacheBuilder.build(), Long.parseLong(maxWeightBytes));
+        } else {
+            CACHE = cacheBuilder.build();
+        }
     }
 
     @Override
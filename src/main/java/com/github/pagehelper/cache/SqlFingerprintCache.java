@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.cache;
+
+import com.github.pagehelper.util.SqlFingerprint;
+
+/**
+ * 以 {@link SqlFingerprint} 作为 key 的 SQL 改写缓存，只有空白不同的 SQL 共用一个缓存项，
+ * 命中时会和缓存项中的原始 SQL 进行校验，避免哈希冲突返回错误的改写结果
+ *
+ * @author liuzh
+ */
+public class SqlFingerprintCache implements Cache<String, String> {
+
+    private final Cache<SqlFingerprint, Entry> cache;
+
+    public SqlFingerprintCache(Cache<SqlFingerprint, Entry> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public String get(String sql) {
+        Entry entry = cache.get(SqlFingerprint.of(sql));
+        if (entry != null && SqlFingerprint.equivalent(entry.sql, sql)) {
+            return entry.value;
+        }
+        return null;
+    }
+
+    @Override
+    public void put(String sql, String value) {
+        cache.put(SqlFingerprint.of(sql), new Entry(sql, value));
+    }
+
+    /**
+     * 缓存项，保存原始 SQL 用于校验
+     */
+    public static class Entry {
+        private final String sql;
+        private final String value;
+
+        public Entry(String sql, String value) {
+            this.sql = sql;
+            this.value = value;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
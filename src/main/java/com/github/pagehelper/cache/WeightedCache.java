@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.cache;
+
+import org.apache.ibatis.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按内存大小淘汰的 MyBatis 缓存装饰器，超过 maxWeight 时按最近访问顺序淘汰
+ * <p>
+ * 读取时只更新访问序号，不加锁；放入、删除和淘汰时加锁，淘汰时按访问序号一次移除最久未访问的多项，
+ * 直到总大小不超过 maxWeight 的 7/8，避免缓存满后每次放入都排序
+ *
+ * @author liuzh
+ */
+public class WeightedCache implements Cache {
+
+    private final Cache                       delegate;
+    private final long                        maxWeight;
+    private final Map<Object, Node>           nodes = new ConcurrentHashMap<Object, Node>();
+    private final AtomicLong                  totalWeight = new AtomicLong();
+    private final AtomicLong                  clock = new AtomicLong();
+    private final Object                      lock = new Object();
+
+    public WeightedCache(Cache delegate, long maxWeight) {
+        this.delegate = delegate;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        Node node = new Node(CacheWeigher.weigh(key, value), clock.incrementAndGet());
+        synchronized (lock) {
+            delegate.putObject(key, value);
+            Node old = nodes.put(key, node);
+            totalWeight.addAndGet(node.weight - (old != null ? old.weight : 0));
+            if (totalWeight.get() > maxWeight) {
+                evict(key);
+            }
+        }
+    }
+
+    /**
+     * 按访问序号从旧到新淘汰，至少保留刚放入的一项
+     */
+    private void evict(Object keep) {
+        //读取时会并发修改访问序号，排序使用快照
+        List<Candidate> candidates = new ArrayList<Candidate>(nodes.size());
+        for (Map.Entry<Object, Node> entry : nodes.entrySet()) {
+            candidates.add(new Candidate(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(candidates);
+        long target = maxWeight - (maxWeight >> 3);
+        for (Candidate candidate : candidates) {
+            if (totalWeight.get() <= target) {
+                break;
+            }
+            if (candidate.key.equals(keep)) {
+                continue;
+            }
+            if (nodes.remove(candidate.key) != null) {
+                totalWeight.addAndGet(-candidate.node.weight);
+                delegate.removeObject(candidate.key);
+            }
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Object value = delegate.getObject(key);
+        if (value != null) {
+            Node node = nodes.get(key);
+            if (node != null) {
+                node.access = clock.incrementAndGet();
+            }
+        } else if (nodes.containsKey(key)) {
+            //可能已经被 delegate 清除，加锁后再次确认，避免和 putObject 交错
+            synchronized (lock) {
+                if (delegate.getObject(key) == null) {
+                    Node node = nodes.remove(key);
+                    if (node != null) {
+                        totalWeight.addAndGet(-node.weight);
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        synchronized (lock) {
+            Node node = nodes.remove(key);
+            if (node != null) {
+                totalWeight.addAndGet(-node.weight);
+            }
+            return delegate.removeObject(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            nodes.clear();
+            totalWeight.set(0);
+            delegate.clear();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return delegate.getSize();
+    }
+
+    public long getTotalWeight() {
+        return totalWeight.get();
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        private final Object key;
+        private final Node   node;
+        private final long   access;
+
+        Candidate(Object key, Node node) {
+            this.key = key;
+            this.node = node;
+            this.access = node.access;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            return access < o.access ? -1 : (access == o.access ? 0 : 1);
+        }
+    }
+
+    private static final class Node {
+        private final    int  weight;
+        private volatile long access;
+
+        Node(int weight, long access) {
+            this.weight = weight;
+            this.access = access;
+        }
+    }
+}
@@ -28,7 +28,9 @@ import com.github.pagehelper.Dialect;
 import com.github.pagehelper.JSqlParser;
 import com.github.pagehelper.PageException;
 import com.github.pagehelper.PageProperties;
+import com.github.pagehelper.parser.CountJoinEliminator;
 import com.github.pagehelper.parser.CountSqlParser;
+import com.github.pagehelper.parser.SqlIndex;
 import com.github.pagehelper.util.StringUtil;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.BoundSql;
@@ -46,6 +48,8 @@ public abstract class AbstractDialect implements Dialect {
     //处理SQL
     protected CountSqlParser countSqlParser;
     protected JSqlParser     jSqlParser;
+    //构建期生成的 SQL 索引
+    protected SqlIndex       sqlIndex;
 
     @Override
     public String getCountSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey countKey) {
@@ -70,5 +74,19 @@ public abstract class AbstractDialect implements Dialect {
             jSqlParser = JSqlParser.DEFAULT;
         }
         this.countSqlParser = new CountSqlParser(jSqlParser);
+        // 构建期生成的 SQL 索引，默认读取 META-INF/pagehelper/sql-index.properties，设置为 false 时禁用
+        String sqlIndex = properties.getProperty("sqlIndex");
+        if (StringUtil.isEmpty(sqlIndex)) {
+            this.sqlIndex = SqlIndex.load(SqlIndex.DEFAULT_LOCATION);
+        } else if (!"false".equalsIgnoreCase(sqlIndex)) {
+            this.sqlIndex = SqlIndex.load(sqlIndex);
+        }
+        this.countSqlParser.setSqlIndex(this.sqlIndex);
+        // count 查询时去掉通过这些唯一键关联的多余 left join，格式为 表名.列名，多个用逗号隔开
+        String countJoinUniqueKeys = properties.getProperty("countJoinUniqueKeys");
+        if (StringUtil.isNotEmpty(countJoinUniqueKeys)) {
+            this.countSqlParser.setCountJoinEliminator(new CountJoinEliminator(countJoinUniqueKeys));
+        }
+        this.countSqlParser.setFastPath(Boolean.parseBoolean(properties.getProperty("countFastPath")));
     }
 }
@@ -27,8 +27,16 @@ package com.github.pagehelper.dialect;
 import com.github.pagehelper.Constant;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageRequest;
 import com.github.pagehelper.PageRowBounds;
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
+import com.github.pagehelper.page.PageWindowCount;
+import com.github.pagehelper.parser.BudgetJSqlParser;
+import com.github.pagehelper.parser.InListCollapser;
+import com.github.pagehelper.parser.KeysetSqlParser;
 import com.github.pagehelper.parser.OrderByParser;
+import com.github.pagehelper.parser.WindowCountSqlParser;
 import com.github.pagehelper.util.ExecutorUtil;
 import com.github.pagehelper.util.MetaObjectUtil;
 import com.github.pagehelper.util.StringUtil;
@@ -49,6 +57,26 @@ import java.util.*;
  * @since 2016-12-04 14:32
  */
 public abstract class AbstractHelperDialect extends AbstractDialect implements Constant {
+    /**
+     * 缓存 key 中 sql 之前的分隔符
+     */
+    protected static final String KEY_SEPARATOR = "\u0000";
+    /**
+     * keyset 分页，startRow 达到 keysetThreshold 时使用，未配置时为 null
+     */
+    protected KeysetSqlParser                          keysetSqlParser;
+    protected long                                     keysetThreshold;
+    protected Cache<String, KeysetSqlParser.KeysetSql> CACHE_KEYSET;
+    /**
+     * count 查询和 order by 改写的结果，同一个 sql 只解析一次
+     */
+    protected Cache<String, String>                    CACHE_COUNTSQL;
+    protected Cache<String, String>                    CACHE_ORDERBYSQL;
+    /**
+     * 追加 COUNT(*) OVER() 总数列的分页 sql，不支持时缓存空字符串
+     */
+    protected Cache<String, String>                    CACHE_WINDOWCOUNTSQL;
+    protected WindowCountSqlParser                     windowCountSqlParser;
 
     /**
      * 获取分页参数
@@ -60,6 +88,20 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
         return PageHelper.getLocalPage();
     }
 
+    /**
+     * 获取分页参数，使用 {@link PageRequest} 时直接从参数中获取
+     *
+     * @param rowBounds
+     * @param <T>
+     * @return
+     */
+    public <T> Page<T> getPage(RowBounds rowBounds) {
+        if (rowBounds instanceof PageRequest) {
+            return ((PageRequest) rowBounds).getPage();
+        }
+        return getLocalPage();
+    }
+
     @Override
     public final boolean skip(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
         //该方法不会被调用
@@ -68,23 +110,71 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
 
     @Override
     public boolean beforeCount(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
-        Page page = getLocalPage();
+        Page page = getPage(rowBounds);
         return !page.isOrderByOnly() && page.isCount();
     }
 
     @Override
     public String getCountSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey countKey) {
-        Page<Object> page = getLocalPage();
+        Page<Object> page = getPage(rowBounds);
         String countColumn = page.getCountColumn();
-        if (StringUtil.isNotEmpty(countColumn)) {
-            return countSqlParser.getSmartCountSql(boundSql.getSql(), countColumn);
+        if (StringUtil.isEmpty(countColumn)) {
+            countColumn = "0";
+        }
+        //保留 order by 时不需要解析，不缓存
+        if (page.keepOrderBy() || page.keepSubSelectOrderBy()) {
+            return countSqlParser.getSmartCountSql(boundSql.getSql(), countColumn, page.keepOrderBy(), page.keepSubSelectOrderBy());
+        }
+        String sql = boundSql.getSql();
+        //in 参数数量不同的 sql 共用一个缓存
+        InListCollapser.Template template = InListCollapser.collapse(sql);
+        String countSql;
+        if (template != null && sqlIndex != null && (countSql = sqlIndex.getCountSql(sql, countColumn)) != null) {
+            return countSql;
+        }
+        String key = countColumn + KEY_SEPARATOR + (template != null ? template.getSql() : sql);
+        countSql = CACHE_COUNTSQL.get(key);
+        if (countSql == null) {
+            countSql = countSqlParser.getSmartCountSql(template != null ? template.getSql() : sql, countColumn, false, false);
+            //解析被降级时不缓存，后续请求仍然可以得到优化后的 count 查询
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_COUNTSQL.put(key, countSql);
+            }
+        }
+        if (template != null) {
+            String expandSql = template.expand(countSql);
+            return expandSql != null ? expandSql : countSqlParser.getSmartCountSql(sql, countColumn, false, false);
+        }
+        return countSql;
+    }
+
+    /**
+     * 获取替换 order by 后的 sql
+     *
+     * @param sql
+     * @param orderBy
+     * @return
+     */
+    protected String getOrderBySql(String sql, String orderBy) {
+        InListCollapser.Template template = InListCollapser.collapse(sql);
+        String key = orderBy + KEY_SEPARATOR + (template != null ? template.getSql() : sql);
+        String orderBySql = CACHE_ORDERBYSQL.get(key);
+        if (orderBySql == null) {
+            orderBySql = OrderByParser.converToOrderBySql(template != null ? template.getSql() : sql, orderBy, jSqlParser);
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_ORDERBYSQL.put(key, orderBySql);
+            }
+        }
+        if (template != null) {
+            String expandSql = template.expand(orderBySql);
+            return expandSql != null ? expandSql : OrderByParser.converToOrderBySql(sql, orderBy, jSqlParser);
         }
-        return countSqlParser.getSmartCountSql(boundSql.getSql());
+        return orderBySql;
     }
 
     @Override
     public boolean afterCount(long count, Object parameterObject, RowBounds rowBounds) {
-        Page page = getLocalPage();
+        Page page = getPage(rowBounds);
         page.setTotal(count);
         if (rowBounds instanceof PageRowBounds) {
             ((PageRowBounds) rowBounds).setTotal(count);
@@ -107,8 +197,22 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
 
     @Override
     public Object processParameterObject(MappedStatement ms, Object parameterObject, BoundSql boundSql, CacheKey pageKey) {
+        return processParameterObject(ms, parameterObject, boundSql, RowBounds.DEFAULT, pageKey);
+    }
+
+    /**
+     * 处理查询参数对象，使用 {@link PageRequest} 时从 rowBounds 中获取分页参数
+     *
+     * @param ms
+     * @param parameterObject
+     * @param boundSql
+     * @param rowBounds
+     * @param pageKey
+     * @return
+     */
+    public Object processParameterObject(MappedStatement ms, Object parameterObject, BoundSql boundSql, RowBounds rowBounds, CacheKey pageKey) {
         //处理参数
-        Page page = getLocalPage();
+        Page page = getPage(rowBounds);
         //如果只是 order by 就不必处理参数
         if (page.isOrderByOnly()) {
             return parameterObject;
@@ -173,7 +277,7 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
 
     @Override
     public boolean beforePage(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
-        Page page = getLocalPage();
+        Page page = getPage(rowBounds);
         if (page.isOrderByOnly() || page.getPageSize() > 0) {
             return true;
         }
@@ -183,17 +287,143 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
     @Override
     public String getPageSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey pageKey) {
         String sql = boundSql.getSql();
-        Page page = getLocalPage();
+        Page page = getPage(rowBounds);
         //支持 order by
         String orderBy = page.getOrderBy();
         if (StringUtil.isNotEmpty(orderBy)) {
             pageKey.update(orderBy);
-            sql = OrderByParser.converToOrderBySql(sql, orderBy, jSqlParser);
+            sql = getOrderBySql(sql, orderBy);
         }
         if (page.isOrderByOnly()) {
             return sql;
         }
-        return getPageSql(sql, page, pageKey);
+        //深分页时使用 keyset 分页，不支持时仍然使用 offset 分页
+        if (keysetSqlParser != null && page.getStartRow() >= keysetThreshold && page.getPageSize() > 0) {
+            KeysetSqlParser.KeysetSql keysetSql = getKeysetSql(sql);
+            if (keysetSql.isSupported() && handleKeysetParameter(ms, boundSql, parameterObject, page, keysetSql)) {
+                return keysetSql.getSql();
+            }
+        }
+        return getPageSql(windowCount(sql), page, pageKey);
+    }
+
+    /**
+     * 是否支持 COUNT(*) OVER() 窗口函数
+     *
+     * @return
+     */
+    protected boolean supportWindowCount() {
+        return false;
+    }
+
+    /**
+     * 是否支持在单独的 * 后追加总数列（SELECT *, COUNT(*) OVER() ...）
+     *
+     * @return
+     */
+    protected boolean supportWindowCountWithAllColumns() {
+        return true;
+    }
+
+    /**
+     * 开启 windowCount 时在查询列中追加总数列，不支持时返回原 sql
+     *
+     * @param sql
+     * @return
+     */
+    protected String windowCount(String sql) {
+        if (!supportWindowCount() || !PageWindowCount.isRequested()) {
+            return sql;
+        }
+        String windowCountSql = getWindowCountSql(sql);
+        if (windowCountSql == null) {
+            return sql;
+        }
+        PageWindowCount.applied();
+        return windowCountSql;
+    }
+
+    /**
+     * 获取追加总数列的 sql
+     *
+     * @param sql
+     * @return 不支持时返回 null
+     */
+    protected String getWindowCountSql(String sql) {
+        InListCollapser.Template template = InListCollapser.collapse(sql);
+        String key = template != null ? template.getSql() : sql;
+        String windowCountSql = CACHE_WINDOWCOUNTSQL.get(key);
+        if (windowCountSql == null) {
+            windowCountSql = windowCountSqlParser.convertToWindowCountSql(key, supportWindowCountWithAllColumns());
+            if (windowCountSql == null) {
+                windowCountSql = "";
+            }
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_WINDOWCOUNTSQL.put(key, windowCountSql);
+            }
+        }
+        if (windowCountSql.length() == 0) {
+            return null;
+        }
+        return template != null ? template.expand(windowCountSql) : windowCountSql;
+    }
+
+    /**
+     * 是否支持 keyset 分页，需要支持 LIMIT ? 和 LIMIT 1 OFFSET ? 语法
+     *
+     * @return
+     */
+    protected boolean supportKeyset() {
+        return false;
+    }
+
+    /**
+     * 获取 keyset 分页 sql
+     *
+     * @param sql
+     * @return
+     */
+    protected KeysetSqlParser.KeysetSql getKeysetSql(String sql) {
+        KeysetSqlParser.KeysetSql keysetSql = CACHE_KEYSET.get(sql);
+        if (keysetSql == null) {
+            keysetSql = keysetSqlParser.parse(sql);
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_KEYSET.put(sql, keysetSql);
+            }
+        }
+        return keysetSql;
+    }
+
+    /**
+     * 使用 keyset 分页的参数替换 processPageParameter 中添加的分页参数
+     *
+     * @return 参数不符合时返回 false
+     */
+    protected boolean handleKeysetParameter(MappedStatement ms, BoundSql boundSql, Object parameterObject, Page page, KeysetSqlParser.KeysetSql keysetSql) {
+        if (!(parameterObject instanceof Map) || boundSql.getParameterMappings() == null) {
+            return false;
+        }
+        List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>(boundSql.getParameterMappings().size());
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            String property = parameterMapping.getProperty();
+            if (!PAGEPARAMETER_FIRST.equals(property) && !PAGEPARAMETER_SECOND.equals(property)) {
+                parameterMappings.add(parameterMapping);
+            }
+        }
+        if (parameterMappings.size() != keysetSql.getParameterCount()) {
+            return false;
+        }
+        ((Map<String, Object>) parameterObject).put(PAGEPARAMETER_OFFSET, page.getStartRow());
+        ((Map<String, Object>) parameterObject).put(PAGEPARAMETER_LIMIT, page.getPageSize());
+        List<ParameterMapping> newParameterMappings = new ArrayList<ParameterMapping>(parameterMappings.size() * 2);
+        newParameterMappings.addAll(parameterMappings.subList(0, keysetSql.getWhereEndIndex()));
+        newParameterMappings.addAll(parameterMappings.subList(keysetSql.getFromIndex(), keysetSql.getWhereEndIndex()));
+        newParameterMappings.add(new ParameterMapping.Builder(ms.getConfiguration(), PAGEPARAMETER_OFFSET, long.class).build());
+        newParameterMappings.addAll(parameterMappings.subList(keysetSql.getWhereEndIndex(), parameterMappings.size()));
+        newParameterMappings.add(new ParameterMapping.Builder(ms.getConfiguration(), PAGEPARAMETER_LIMIT, int.class).build());
+        MetaObject metaObject = MetaObjectUtil.forObject(boundSql);
+        metaObject.setValue("parameterMappings", newParameterMappings);
+        return true;
     }
 
     /**
@@ -208,7 +438,7 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
 
     @Override
     public Object afterPage(List pageList, Object parameterObject, RowBounds rowBounds) {
-        Page page = getLocalPage();
+        Page page = getPage(rowBounds);
         if (page == null) {
             return pageList;
         }
@@ -225,12 +455,30 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
 
     @Override
     public void afterAll() {
-
+        //清除不缓存的解析留下的降级标记
+        BudgetJSqlParser.clearDegraded();
     }
 
     @Override
     public void setProperties(Properties properties) {
         super.setProperties(properties);
+        String sqlCacheClass = properties.getProperty("sqlCacheClass");
+        if (StringUtil.isEmpty(sqlCacheClass) || sqlCacheClass.equalsIgnoreCase("false")) {
+            sqlCacheClass = null;
+        }
+        CACHE_COUNTSQL = CacheFactory.createSqlCache(sqlCacheClass, "count", properties);
+        CACHE_ORDERBYSQL = CacheFactory.createSqlCache(sqlCacheClass, "orderBy", properties);
+        if (supportWindowCount()) {
+            this.windowCountSqlParser = new WindowCountSqlParser(jSqlParser);
+            CACHE_WINDOWCOUNTSQL = CacheFactory.createSqlCache(sqlCacheClass, "windowCount", properties);
+        }
+        String keysetThreshold = properties.getProperty("keysetThreshold");
+        String keysetColumns = properties.getProperty("keysetColumns");
+        if (supportKeyset() && StringUtil.isNotEmpty(keysetThreshold) && StringUtil.isNotEmpty(keysetColumns)) {
+            this.keysetThreshold = Long.parseLong(keysetThreshold);
+            this.keysetSqlParser = new KeysetSqlParser(jSqlParser, keysetColumns);
+            CACHE_KEYSET = CacheFactory.createCache(sqlCacheClass, "keyset", properties);
+        }
     }
 
     /**
@@ -245,6 +493,40 @@ public abstract class AbstractHelperDialect extends AbstractDialect implements C
         }
     }
 
+    /**
+     * 处理 OFFSET ? ROWS FETCH NEXT ? ROWS ONLY 分页的参数，第一个参数为 startRow，第二个参数为 pageSize
+     *
+     * @param ms
+     * @param paramMap
+     * @param page
+     * @param boundSql
+     * @param pageKey
+     * @return
+     */
+    protected Object processOffsetFetchParameter(MappedStatement ms, Map<String, Object> paramMap, Page page, BoundSql boundSql, CacheKey pageKey) {
+        paramMap.put(PAGEPARAMETER_FIRST, page.getStartRow());
+        paramMap.put(PAGEPARAMETER_SECOND, page.getPageSize());
+        //处理pageKey
+        pageKey.update(page.getStartRow());
+        pageKey.update(page.getPageSize());
+        //处理参数配置
+        handleParameter(boundSql, ms, long.class, int.class);
+        return paramMap;
+    }
+
+    /**
+     * 追加 OFFSET ? ROWS FETCH NEXT ? ROWS ONLY，参数由 {@link #processOffsetFetchParameter} 设置
+     *
+     * @param sql
+     * @return
+     */
+    protected String getOffsetFetchSql(String sql) {
+        StringBuilder sqlBuilder = new StringBuilder(sql.length() + 64);
+        sqlBuilder.append(sql);
+        sqlBuilder.append("\n OFFSET ? ROWS FETCH NEXT ? ROWS ONLY ");
+        return sqlBuilder.toString();
+    }
+
     protected void handleParameter(BoundSql boundSql, MappedStatement ms, Class<?> firstClass, Class<?> secondClass) {
         if (boundSql.getParameterMappings() != null) {
             List<ParameterMapping> newParameterMappings = new ArrayList<ParameterMapping>(boundSql.getParameterMappings());
@@ -25,6 +25,10 @@
 package com.github.pagehelper.dialect;
 
 import com.github.pagehelper.PageRowBounds;
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
+import com.github.pagehelper.parser.BudgetJSqlParser;
+import com.github.pagehelper.util.StringUtil;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -39,6 +43,7 @@ import java.util.Properties;
  * @author liuzh
  */
 public abstract class AbstractRowBoundsDialect extends AbstractDialect {
+    protected Cache<String, String> CACHE_COUNTSQL;
 
     @Override
     public boolean skip(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
@@ -54,6 +59,29 @@ public abstract class AbstractRowBoundsDialect extends AbstractDialect {
         return false;
     }
 
+    @Override
+    public String getCountSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey countKey) {
+        String sql = boundSql.getSql();
+        String countSql = CACHE_COUNTSQL.get(sql);
+        if (countSql == null) {
+            countSql = convertToCountSql(sql);
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_COUNTSQL.put(sql, countSql);
+            }
+        }
+        return countSql;
+    }
+
+    /**
+     * 生成 count 查询，结果会被缓存
+     *
+     * @param sql
+     * @return
+     */
+    protected String convertToCountSql(String sql) {
+        return countSqlParser.getSmartCountSql(sql);
+    }
+
     @Override
     public boolean afterCount(long count, Object parameterObject, RowBounds rowBounds) {
         //由于 beforeCount 校验，这里一定是 PageRowBounds
@@ -86,11 +114,18 @@ public abstract class AbstractRowBoundsDialect extends AbstractDialect {
 
     @Override
     public void afterAll() {
-
+        //清除不缓存的解析留下的降级标记
+        BudgetJSqlParser.clearDegraded();
     }
 
     @Override
     public void setProperties(Properties properties) {
         super.setProperties(properties);
+        String sqlCacheClass = properties.getProperty("sqlCacheClass");
+        if (StringUtil.isNotEmpty(sqlCacheClass) && !sqlCacheClass.equalsIgnoreCase("false")) {
+            CACHE_COUNTSQL = CacheFactory.createSqlCache(sqlCacheClass, "count", properties);
+        } else {
+            CACHE_COUNTSQL = CacheFactory.createSqlCache(null, "count", properties);
+        }
     }
 }
@@ -62,7 +62,7 @@ public abstract class DataSourceAutoDialect<Ds extends DataSource> implements Au
 
     @Override
     public AbstractHelperDialect extractDialect(String dialectKey, MappedStatement ms, DataSource dataSource, Properties properties) {
-        String dialect = PageAutoDialect.fromJdbcUrl(dialectKey);
+        String dialect = PageAutoDialect.fromDatabaseVersion(PageAutoDialect.fromJdbcUrl(dialectKey), dataSource, properties);
         return PageAutoDialect.instanceDialect(dialect, properties);
     }
 
@@ -69,7 +69,8 @@ public class DefaultAutoDialect implements AutoDialect<String> {
 
     @Override
     public AbstractHelperDialect extractDialect(String dialectKey, MappedStatement ms, DataSource dataSource, Properties properties) {
-        String dialectStr = PageAutoDialect.fromJdbcUrl(dialectKey);
+        //jdbcUrl 无法识别时根据数据库产品名称识别
+        String dialectStr = PageAutoDialect.fromDatabaseVersion(PageAutoDialect.fromJdbcUrl(dialectKey), dataSource, properties);
         if (dialectStr == null) {
             throw new PageException("无法自动获取数据库类型，请通过 helperDialect 参数指定!");
         }
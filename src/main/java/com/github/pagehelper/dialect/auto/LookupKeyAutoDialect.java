@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.dialect.auto;
+
+import com.github.pagehelper.AutoDialect;
+import com.github.pagehelper.PageException;
+import com.github.pagehelper.PageProperties;
+import com.github.pagehelper.dialect.AbstractHelperDialect;
+import com.github.pagehelper.page.PageAutoDialect;
+import com.github.pagehelper.util.StringUtil;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 通过 {@link LookupKeyResolver} 获取数据源标识和方言，适用于目标库在运行时切换的动态数据源（例如多租户），不需要获取连接
+ * <p>
+ * 配置 autoDialectClass=lookup 和 lookupKeyResolver=实现类全限定名，同一种方言的所有数据源标识共用一个方言实例
+ *
+ * @author liuzh
+ */
+public class LookupKeyAutoDialect implements AutoDialect<Object>, PageProperties {
+    private final ConcurrentHashMap<String, AbstractHelperDialect> dialectMap = new ConcurrentHashMap<String, AbstractHelperDialect>();
+    private       LookupKeyResolver                                resolver;
+
+    @Override
+    public Object extractDialectKey(MappedStatement ms, DataSource dataSource, Properties properties) {
+        Object lookupKey = resolver.getLookupKey(ms, dataSource);
+        if (lookupKey == null) {
+            return DefaultAutoDialect.DEFAULT.extractDialectKey(ms, dataSource, properties);
+        }
+        return new LookupKey(lookupKey);
+    }
+
+    @Override
+    public AbstractHelperDialect extractDialect(Object dialectKey, MappedStatement ms, DataSource dataSource, Properties properties) {
+        if (!(dialectKey instanceof LookupKey)) {
+            return DefaultAutoDialect.DEFAULT.extractDialect((String) dialectKey, ms, dataSource, properties);
+        }
+        Object lookupKey = ((LookupKey) dialectKey).lookupKey;
+        String dialect = resolver.getDialect(lookupKey, ms, dataSource);
+        if (StringUtil.isNotEmpty(dialect) && dialect.startsWith("jdbc:")) {
+            dialect = PageAutoDialect.fromJdbcUrl(dialect);
+        }
+        if (StringUtil.isEmpty(dialect)) {
+            throw new PageException("无法获取数据源 [" + lookupKey + "] 对应的方言，请检查 " + resolver.getClass().getName());
+        }
+        AbstractHelperDialect helperDialect = dialectMap.get(dialect);
+        if (helperDialect == null) {
+            helperDialect = PageAutoDialect.instanceDialect(dialect, properties);
+            AbstractHelperDialect exists = dialectMap.putIfAbsent(dialect, helperDialect);
+            if (exists != null) {
+                helperDialect = exists;
+            }
+        }
+        return helperDialect;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        String resolverClass = properties.getProperty("lookupKeyResolver");
+        if (StringUtil.isEmpty(resolverClass)) {
+            throw new PageException("使用 LookupKeyAutoDialect 时必须配置 lookupKeyResolver 参数");
+        }
+        try {
+            this.resolver = (LookupKeyResolver) Class.forName(resolverClass).newInstance();
+        } catch (Exception e) {
+            throw new PageException("初始化 lookupKeyResolver [" + resolverClass + "] 时出错: " + e.getMessage(), e);
+        }
+        if (this.resolver instanceof PageProperties) {
+            ((PageProperties) this.resolver).setProperties(properties);
+        }
+    }
+
+    /**
+     * 数据源标识，和 jdbc url 区分
+     */
+    private static class LookupKey {
+        private final Object lookupKey;
+
+        LookupKey(Object lookupKey) {
+            this.lookupKey = lookupKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof LookupKey && lookupKey.equals(((LookupKey) o).lookupKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return lookupKey.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "LookupKey[" + lookupKey + "]";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.dialect.auto;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+import javax.sql.DataSource;
+
+/**
+ * 为 {@link LookupKeyAutoDialect} 提供当前的数据源标识（例如租户、数据源名称）以及对应的方言，
+ * 实现类需要提供无参构造方法，实现 {@link com.github.pagehelper.PageProperties} 时会传入插件配置
+ *
+ * @author liuzh
+ */
+public interface LookupKeyResolver {
+
+    /**
+     * 获取当前的数据源标识，例如动态数据源当前线程中的 lookup key
+     *
+     * @param ms
+     * @param dataSource
+     * @return 返回 null 时获取连接读取 url
+     */
+    Object getLookupKey(MappedStatement ms, DataSource dataSource);
+
+    /**
+     * 获取数据源标识对应的方言，每个标识只会调用一次（缓存被淘汰后会再次调用）
+     *
+     * @param lookupKey  {@link #getLookupKey} 的返回值
+     * @param ms
+     * @param dataSource
+     * @return 方言别名（如 mysql）、方言类名或者 jdbc url
+     */
+    String getDialect(Object lookupKey, MappedStatement ms, DataSource dataSource);
+
+}
@@ -58,4 +58,13 @@ public class Db2Dialect extends AbstractHelperDialect {
         return sqlBuilder.toString();
     }
 
+    @Override
+    protected boolean supportWindowCount() {
+        return true;
+    }
+
+    @Override
+    protected boolean supportWindowCountWithAllColumns() {
+        return false;
+    }
 }
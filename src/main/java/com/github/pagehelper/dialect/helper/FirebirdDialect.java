@@ -45,23 +45,13 @@ public class FirebirdDialect extends AbstractHelperDialect {
 
     @Override
     public Object processPageParameter(MappedStatement ms, Map<String, Object> paramMap, Page page, BoundSql boundSql, CacheKey pageKey) {
-        paramMap.put(PAGEPARAMETER_FIRST, page.getStartRow());
-        paramMap.put(PAGEPARAMETER_SECOND, page.getPageSize());
-        //处理pageKey
-        pageKey.update(page.getStartRow());
-        pageKey.update(page.getPageSize());
-        //处理参数配置
-        handleParameter(boundSql, ms, long.class, int.class);
-        return paramMap;
+        return processOffsetFetchParameter(ms, paramMap, page, boundSql, pageKey);
     }
 
     @Override
     public String getPageSql(String sql, Page page, CacheKey pageKey) {
-        StringBuilder sqlBuilder = new StringBuilder(sql.length() + 64);
-        sqlBuilder.append(sql);
-        sqlBuilder.append("\n OFFSET ? ROWS FETCH NEXT ? ROWS ONLY ");
         pageKey.update(page.getPageSize());
-        return sqlBuilder.toString();
+        return getOffsetFetchSql(sql);
     }
 
 }
@@ -76,4 +76,9 @@ public class HsqldbDialect extends AbstractHelperDialect {
         }
         return sqlBuilder.toString();
     }
+
+    @Override
+    protected boolean supportKeyset() {
+        return true;
+    }
 }
@@ -76,4 +76,13 @@ public class MySqlDialect extends AbstractHelperDialect {
         return sqlBuilder.toString();
     }
 
+    @Override
+    protected boolean supportKeyset() {
+        return true;
+    }
+
+    @Override
+    protected boolean supportWindowCount() {
+        return true;
+    }
 }
@@ -24,45 +24,16 @@
 
 package com.github.pagehelper.dialect.helper;
 
-import com.github.pagehelper.Page;
-import com.github.pagehelper.dialect.AbstractHelperDialect;
-import org.apache.ibatis.cache.CacheKey;
-import org.apache.ibatis.mapping.BoundSql;
-import org.apache.ibatis.mapping.MappedStatement;
-
-import java.util.Map;
-
 /**
  * 参考
  * <ul>
  *     <li>https://github.com/pagehelper/Mybatis-PageHelper/pull/476</li>
  *     <li>https://github.com/hibernate/hibernate-orm/search?utf8=%E2%9C%93&q=rownum&type=</li>
  * </ul>
+ * {@link OracleDialect} 已经使用相同的分页方式，保留该类兼容 oracle9i 别名和直接配置该类的情况
+ *
  * @author liuzh
  */
-public class Oracle9iDialect extends AbstractHelperDialect {
-
-    @Override
-    public Object processPageParameter(MappedStatement ms, Map<String, Object> paramMap, Page page, BoundSql boundSql, CacheKey pageKey) {
-        paramMap.put(PAGEPARAMETER_FIRST, page.getEndRow());
-        paramMap.put(PAGEPARAMETER_SECOND, page.getStartRow());
-        //处理pageKey
-        pageKey.update(page.getEndRow());
-        pageKey.update(page.getStartRow());
-        //处理参数配置
-        handleParameter(boundSql, ms, long.class, long.class);
-        return paramMap;
-    }
-
-    @Override
-    public String getPageSql(String sql, Page page, CacheKey pageKey) {
-        StringBuilder sqlBuilder = new StringBuilder(sql.length() + 120);
-        sqlBuilder.append("SELECT * FROM ( ");
-        sqlBuilder.append(" SELECT TMP_PAGE.*, ROWNUM PAGEHELPER_ROW_ID FROM ( \n");
-        sqlBuilder.append(sql);
-        sqlBuilder.append("\n ) TMP_PAGE WHERE ROWNUM <= ? ");
-        sqlBuilder.append(" ) WHERE PAGEHELPER_ROW_ID > ? ");
-        return sqlBuilder.toString();
-    }
+public class Oracle9iDialect extends OracleDialect {
 
 }
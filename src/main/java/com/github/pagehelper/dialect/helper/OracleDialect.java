@@ -55,9 +55,19 @@ public class OracleDialect extends AbstractHelperDialect {
         sqlBuilder.append("SELECT * FROM ( ");
         sqlBuilder.append(" SELECT TMP_PAGE.*, ROWNUM PAGEHELPER_ROW_ID FROM ( \n");
         sqlBuilder.append(sql);
-        sqlBuilder.append("\n ) TMP_PAGE)");
-        sqlBuilder.append(" WHERE PAGEHELPER_ROW_ID <= ? AND PAGEHELPER_ROW_ID > ?");
+        //上限放在内层，oracle 可以使用 COUNT STOPKEY，排序时只保留前 endRow 行
+        sqlBuilder.append("\n ) TMP_PAGE WHERE ROWNUM <= ? ");
+        sqlBuilder.append(" ) WHERE PAGEHELPER_ROW_ID > ? ");
         return sqlBuilder.toString();
     }
 
+    @Override
+    protected boolean supportWindowCount() {
+        return true;
+    }
+
+    @Override
+    protected boolean supportWindowCountWithAllColumns() {
+        return false;
+    }
 }
@@ -83,4 +83,13 @@ public class PostgreSqlDialect extends AbstractHelperDialect {
         return sqlStr.toString();
     }
 
+    @Override
+    protected boolean supportKeyset() {
+        return true;
+    }
+
+    @Override
+    protected boolean supportWindowCount() {
+        return true;
+    }
 }
@@ -25,11 +25,15 @@
 package com.github.pagehelper.dialect.helper;
 
 import com.github.pagehelper.Page;
+import com.github.pagehelper.page.PageWindowCount;
+import com.github.pagehelper.util.StringUtil;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
 
 import java.util.Map;
+import java.util.Properties;
 
 /**
  * @author liuzh
@@ -38,23 +42,46 @@ public class SqlServer2012Dialect extends SqlServerDialect {
 
     @Override
     public Object processPageParameter(MappedStatement ms, Map<String, Object> paramMap, Page page, BoundSql boundSql, CacheKey pageKey) {
-        paramMap.put(PAGEPARAMETER_FIRST, page.getStartRow());
-        paramMap.put(PAGEPARAMETER_SECOND, page.getPageSize());
-        //处理pageKey
-        pageKey.update(page.getStartRow());
-        pageKey.update(page.getPageSize());
-        //处理参数配置
-        handleParameter(boundSql, ms, long.class, int.class);
-        return paramMap;
+        return processOffsetFetchParameter(ms, paramMap, page, boundSql, pageKey);
+    }
+
+    /**
+     * 排序时先追加 ORDER BY，再使用 OFFSET FETCH 分页，不使用父类的 ROW_NUMBER 模板
+     */
+    @Override
+    public String getPageSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey pageKey) {
+        String sql = boundSql.getSql();
+        Page page = this.getPage(rowBounds);
+        String orderBy = page.getOrderBy();
+        if (StringUtil.isNotEmpty(orderBy)) {
+            pageKey.update(orderBy);
+            sql = this.replaceSql.restore(getOrderBySql(this.replaceSql.replace(sql), orderBy));
+        }
+        if (page.isOrderByOnly()) {
+            return sql;
+        }
+        return getPageSql(sql, page, pageKey);
     }
 
     @Override
     public String getPageSql(String sql, Page page, CacheKey pageKey) {
-        StringBuilder sqlBuilder = new StringBuilder(sql.length() + 64);
-        sqlBuilder.append(sql);
-        sqlBuilder.append("\n OFFSET ? ROWS FETCH NEXT ? ROWS ONLY ");
+        if (PageWindowCount.isRequested()) {
+            //with(nolock) 需要替换后才能解析
+            sql = replaceSql.restore(windowCount(replaceSql.replace(sql)));
+        }
         pageKey.update(page.getPageSize());
-        return sqlBuilder.toString();
+        return getOffsetFetchSql(sql);
     }
 
+    @Override
+    public void setProperties(Properties properties) {
+        super.setProperties(properties);
+        //OFFSET FETCH 本身就使用参数
+        this.parameterPaging = false;
+    }
+
+    @Override
+    protected boolean supportWindowCount() {
+        return true;
+    }
 }
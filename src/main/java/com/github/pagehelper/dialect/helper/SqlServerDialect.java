@@ -25,6 +25,7 @@
 package com.github.pagehelper.dialect.helper;
 
 import com.github.pagehelper.Page;
+import com.github.pagehelper.PageException;
 import com.github.pagehelper.PageProperties;
 import com.github.pagehelper.cache.Cache;
 import com.github.pagehelper.cache.CacheFactory;
@@ -32,14 +33,21 @@ import com.github.pagehelper.dialect.AbstractHelperDialect;
 import com.github.pagehelper.dialect.ReplaceSql;
 import com.github.pagehelper.dialect.replace.RegexWithNolockReplaceSql;
 import com.github.pagehelper.dialect.replace.SimpleWithNolockReplaceSql;
+import com.github.pagehelper.parser.BudgetJSqlParser;
+import com.github.pagehelper.parser.InListCollapser;
 import com.github.pagehelper.parser.OrderByParser;
 import com.github.pagehelper.parser.SqlServerParser;
+import com.github.pagehelper.util.MetaObjectUtil;
 import com.github.pagehelper.util.StringUtil;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.RowBounds;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -47,29 +55,52 @@ import java.util.Properties;
  * @author liuzh
  */
 public class SqlServerDialect extends AbstractHelperDialect {
+    private static final String PAGE_SIZE_PARAMETER = "TOP (?)";
+
     protected SqlServerParser       pageSql;
-    protected Cache<String, String> CACHE_COUNTSQL;
     protected Cache<String, String> CACHE_PAGESQL;
     protected ReplaceSql            replaceSql;
+    //使用参数代替分页中的行号，可以复用执行计划
+    protected boolean               parameterPaging;
 
     @Override
     public String getCountSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey countKey) {
+        Page page = getPage(rowBounds);
         String sql = boundSql.getSql();
-        String cacheSql = CACHE_COUNTSQL.get(sql);
-        if (cacheSql != null) {
-            return cacheSql;
-        } else {
-            cacheSql = sql;
+        //in 参数数量不同的 sql 共用一个缓存
+        InListCollapser.Template template = InListCollapser.collapse(sql);
+        String key = template != null ? template.getSql() : sql;
+        String cacheSql = CACHE_COUNTSQL.get(key);
+        if (cacheSql == null) {
+            if (sqlIndex != null && (cacheSql = sqlIndex.getCountSql(sql, "0")) != null) {
+                if (template == null) {
+                    CACHE_COUNTSQL.put(sql, cacheSql);
+                }
+                return cacheSql;
+            }
+            cacheSql = replaceSql.replace(key);
+            cacheSql = countSqlParser.getSmartCountSql(cacheSql, "0", page.keepOrderBy(), page.keepSubSelectOrderBy());
+            cacheSql = replaceSql.restore(cacheSql);
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_COUNTSQL.put(key, cacheSql);
+            }
+        }
+        if (template != null) {
+            String expandSql = template.expand(cacheSql);
+            if (expandSql != null) {
+                return expandSql;
+            }
+            return replaceSql.restore(countSqlParser.getSmartCountSql(replaceSql.replace(sql), "0", page.keepOrderBy(), page.keepSubSelectOrderBy()));
         }
-        cacheSql = replaceSql.replace(cacheSql);
-        cacheSql = countSqlParser.getSmartCountSql(cacheSql);
-        cacheSql = replaceSql.restore(cacheSql);
-        CACHE_COUNTSQL.put(sql, cacheSql);
         return cacheSql;
     }
 
     @Override
     public Object processPageParameter(MappedStatement ms, Map<String, Object> paramMap, Page page, BoundSql boundSql, CacheKey pageKey) {
+        if (parameterPaging) {
+            paramMap.put(PAGEPARAMETER_FIRST, page.getStartRow());
+            paramMap.put(PAGEPARAMETER_SECOND, page.getPageSize());
+        }
         return paramMap;
     }
 
@@ -78,16 +109,74 @@ public class SqlServerDialect extends AbstractHelperDialect {
         //处理pageKey
         pageKey.update(page.getStartRow());
         pageKey.update(page.getPageSize());
-        String cacheSql = CACHE_PAGESQL.get(sql);
+        return fillPageTemplate(getPageTemplate(sql), page);
+    }
+
+    /**
+     * 替换分页模板中的行号
+     *
+     * @param cacheSql
+     * @param page
+     * @return
+     */
+    protected String fillPageTemplate(String cacheSql, Page page) {
+        if (parameterPaging) {
+            return cacheSql;
+        }
+        cacheSql = cacheSql.replace(SqlServerParser.START_ROW, String.valueOf(page.getStartRow()));
+        cacheSql = cacheSql.replace(SqlServerParser.PAGE_SIZE, String.valueOf(page.getPageSize()));
+        return cacheSql;
+    }
+
+    /**
+     * 获取分页模板，默认使用 {@link SqlServerParser#START_ROW} 和 {@link SqlServerParser#PAGE_SIZE} 占位，
+     * parameterPaging 时使用 ? 占位
+     *
+     * @param sql
+     * @return
+     */
+    protected String getPageTemplate(String sql) {
+        return getPageTemplate(sql, null);
+    }
+
+    /**
+     * 获取替换 order by 后的分页模板，order by 和分页共用一次解析
+     *
+     * @param sql
+     * @param orderBy 为空时使用原 sql 中的 order by
+     * @return
+     */
+    protected String getPageTemplate(String sql, String orderBy) {
+        String key = StringUtil.isEmpty(orderBy) ? sql : orderBy + KEY_SEPARATOR + sql;
+        String cacheSql = CACHE_PAGESQL.get(key);
         if (cacheSql == null) {
-            cacheSql = sql;
-            cacheSql = replaceSql.replace(cacheSql);
-            cacheSql = pageSql.convertToPageSql(cacheSql, null, null);
-            cacheSql = replaceSql.restore(cacheSql);
-            CACHE_PAGESQL.put(sql, cacheSql);
+            if (sqlIndex != null && StringUtil.isEmpty(orderBy)) {
+                cacheSql = sqlIndex.getSqlServerPageSql(sql);
+            }
+            if (cacheSql == null) {
+                cacheSql = replaceSql.replace(sql);
+                if (StringUtil.isEmpty(orderBy)) {
+                    cacheSql = pageSql.convertToPageSql(cacheSql, null, null);
+                } else {
+                    try {
+                        cacheSql = pageSql.convertToPageSql(cacheSql, orderBy, null, null);
+                    } catch (PageException e) {
+                        //无法直接替换时，先拼接 order by 再转换
+                        cacheSql = OrderByParser.converToOrderBySql(cacheSql, orderBy, jSqlParser);
+                        cacheSql = pageSql.convertToPageSql(cacheSql, null, null);
+                    }
+                }
+                cacheSql = replaceSql.restore(cacheSql);
+            }
+            if (parameterPaging) {
+                cacheSql = cacheSql.replace("TOP " + SqlServerParser.PAGE_SIZE, PAGE_SIZE_PARAMETER);
+                cacheSql = cacheSql.replace("PAGE_ROW_NUMBER > " + SqlServerParser.START_ROW, "PAGE_ROW_NUMBER > ?");
+            }
+            //order by 解析被降级时直接拼接，不缓存
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_PAGESQL.put(key, cacheSql);
+            }
         }
-        cacheSql = cacheSql.replace(String.valueOf(Long.MIN_VALUE), String.valueOf(page.getStartRow()));
-        cacheSql = cacheSql.replace(String.valueOf(Long.MAX_VALUE), String.valueOf(page.getPageSize()));
         return cacheSql;
     }
 
@@ -101,16 +190,75 @@ public class SqlServerDialect extends AbstractHelperDialect {
     @Override
     public String getPageSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey pageKey) {
         String sql = boundSql.getSql();
-        Page page = this.getLocalPage();
+        Page page = this.getPage(rowBounds);
         String orderBy = page.getOrderBy();
         if (StringUtil.isNotEmpty(orderBy)) {
             pageKey.update(orderBy);
-            sql = this.replaceSql.replace(sql);
-            sql = OrderByParser.converToOrderBySql(sql, orderBy, jSqlParser);
-            sql = this.replaceSql.restore(sql);
+            if (page.isOrderByOnly()) {
+                return this.replaceSql.restore(getOrderBySql(this.replaceSql.replace(sql), orderBy));
+            }
+            pageKey.update(page.getStartRow());
+            pageKey.update(page.getPageSize());
+            sql = fillPageTemplate(getPageTemplate(sql, orderBy), page);
+        } else if (page.isOrderByOnly()) {
+            return sql;
+        } else {
+            sql = this.getPageSql(sql, page, pageKey);
+        }
+        if (parameterPaging) {
+            handlePageParameter(boundSql, ms, sql);
         }
+        return sql;
+    }
+
+    /**
+     * TOP (?) 在 WITH 之后，外层查询之前，ROW_NUMBER 的条件在最后
+     *
+     * @param boundSql
+     * @param ms
+     * @param pageSql
+     */
+    protected void handlePageParameter(BoundSql boundSql, MappedStatement ms, String pageSql) {
+        if (boundSql.getParameterMappings() != null) {
+            List<ParameterMapping> newParameterMappings = new ArrayList<ParameterMapping>(boundSql.getParameterMappings().size() + 2);
+            newParameterMappings.addAll(boundSql.getParameterMappings());
+            int index = pageSql.startsWith("SELECT " + PAGE_SIZE_PARAMETER) ? 0 : countParameterBeforeTop(pageSql);
+            newParameterMappings.add(index, new ParameterMapping.Builder(ms.getConfiguration(), PAGEPARAMETER_SECOND, int.class).build());
+            newParameterMappings.add(new ParameterMapping.Builder(ms.getConfiguration(), PAGEPARAMETER_FIRST, long.class).build());
+            MetaObject metaObject = MetaObjectUtil.forObject(boundSql);
+            metaObject.setValue("parameterMappings", newParameterMappings);
+        }
+    }
 
-        return page.isOrderByOnly() ? sql : this.getPageSql(sql, page, pageKey);
+    /**
+     * 计算最外层 TOP (?) 之前（WITH 中）的参数个数
+     *
+     * @param pageSql
+     * @return
+     */
+    private int countParameterBeforeTop(String pageSql) {
+        int count = 0;
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < pageSql.length(); i++) {
+            char c = pageSql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '[') {
+                quote = c == '[' ? ']' : c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '?') {
+                count++;
+            } else if (depth == 0 && c == 'T' && pageSql.startsWith(PAGE_SIZE_PARAMETER, i)) {
+                return count;
+            }
+        }
+        return count;
     }
 
     @Override
@@ -133,13 +281,12 @@ public class SqlServerDialect extends AbstractHelperDialect {
                         + ReplaceSql.class.getCanonicalName() + " 接口的全限定类名", e);
             }
         }
+        this.parameterPaging = Boolean.parseBoolean(properties.getProperty("sqlServerParameterPaging"));
         String sqlCacheClass = properties.getProperty("sqlCacheClass");
         if (StringUtil.isNotEmpty(sqlCacheClass) && !sqlCacheClass.equalsIgnoreCase("false")) {
-            CACHE_COUNTSQL = CacheFactory.createCache(sqlCacheClass, "count", properties);
-            CACHE_PAGESQL = CacheFactory.createCache(sqlCacheClass, "page", properties);
+            CACHE_PAGESQL = CacheFactory.createSqlCache(sqlCacheClass, "page", properties);
         } else {
-            CACHE_COUNTSQL = CacheFactory.createCache(null, "count", properties);
-            CACHE_PAGESQL = CacheFactory.createCache(null, "page", properties);
+            CACHE_PAGESQL = CacheFactory.createSqlCache(null, "page", properties);
         }
     }
 }
@@ -25,6 +25,9 @@
 package com.github.pagehelper.dialect.replace;
 
 import com.github.pagehelper.dialect.ReplaceSql;
+import com.github.pagehelper.util.StringUtil;
+
+import java.util.regex.Pattern;
 
 /**
  * 正则处理 with(nolock)，转换为一个 table_PAGEWITHNOLOCK
@@ -33,17 +36,26 @@ import com.github.pagehelper.dialect.ReplaceSql;
  * @since 2017/8/23.
  */
 public class RegexWithNolockReplaceSql implements ReplaceSql {
+    private static final Pattern REPLACE_PATTERN = Pattern.compile("((?i)\\s*(\\w+)\\s*with\\s*\\(\\s*nolock\\s*\\))");
+    private static final Pattern RESTORE_PATTERN = Pattern.compile("\\s*(\\w*?)_PAGEWITHNOLOCK");
 
     //with(nolock)
     protected String WITHNOLOCK = ", PAGEWITHNOLOCK";
 
     @Override
     public String replace(String sql) {
-        return sql.replaceAll("((?i)\\s*(\\w+)\\s*with\\s*\\(\\s*nolock\\s*\\))", " $2_PAGEWITHNOLOCK");
+        //不包含 nolock 时直接返回，避免正则匹配
+        if (!StringUtil.containsIgnoreCase(sql, "nolock")) {
+            return sql;
+        }
+        return REPLACE_PATTERN.matcher(sql).replaceAll(" $2_PAGEWITHNOLOCK");
     }
 
     @Override
     public String restore(String sql) {
-        return sql.replaceAll("\\s*(\\w*?)_PAGEWITHNOLOCK", " $1 WITH(NOLOCK)");
+        if (sql.indexOf("_PAGEWITHNOLOCK") < 0) {
+            return sql;
+        }
+        return RESTORE_PATTERN.matcher(sql).replaceAll(" $1 WITH(NOLOCK)");
     }
 }
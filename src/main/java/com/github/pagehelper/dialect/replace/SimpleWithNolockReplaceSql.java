@@ -25,6 +25,10 @@
 package com.github.pagehelper.dialect.replace;
 
 import com.github.pagehelper.dialect.ReplaceSql;
+import com.github.pagehelper.util.StringUtil;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 简单处理 with(nolock)
@@ -33,18 +37,35 @@ import com.github.pagehelper.dialect.ReplaceSql;
  * @since 2017/8/23.
  */
 public class SimpleWithNolockReplaceSql implements ReplaceSql {
+    private static final Pattern REPLACE_PATTERN = Pattern.compile("((?i)with\\s*\\(nolock\\))");
 
     //with(nolock)
     protected String WITHNOLOCK = ", PAGEWITHNOLOCK";
 
     @Override
     public String replace(String sql) {
-        return sql.replaceAll("((?i)with\\s*\\(nolock\\))", WITHNOLOCK);
+        //不包含 nolock 时直接返回，避免正则匹配
+        if (!StringUtil.containsIgnoreCase(sql, "nolock")) {
+            return sql;
+        }
+        return REPLACE_PATTERN.matcher(sql).replaceAll(Matcher.quoteReplacement(WITHNOLOCK));
     }
 
     @Override
     public String restore(String sql) {
-        return sql.replaceAll(WITHNOLOCK, " with(nolock)");
+        int index = sql.indexOf(WITHNOLOCK);
+        if (index < 0) {
+            return sql;
+        }
+        //WITHNOLOCK 是普通文本，按文本替换即可
+        StringBuilder builder = new StringBuilder(sql.length() + 16);
+        int start = 0;
+        while (index >= 0) {
+            builder.append(sql, start, index).append(" with(nolock)");
+            start = index + WITHNOLOCK.length();
+            index = sql.indexOf(WITHNOLOCK, start);
+        }
+        return builder.append(sql, start, sql.length()).toString();
     }
 
 }
@@ -25,15 +25,16 @@
 package com.github.pagehelper.dialect.rowbounds;
 
 import com.github.pagehelper.PageProperties;
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
 import com.github.pagehelper.dialect.AbstractRowBoundsDialect;
 import com.github.pagehelper.dialect.ReplaceSql;
 import com.github.pagehelper.dialect.replace.RegexWithNolockReplaceSql;
 import com.github.pagehelper.dialect.replace.SimpleWithNolockReplaceSql;
+import com.github.pagehelper.parser.BudgetJSqlParser;
 import com.github.pagehelper.parser.SqlServerParser;
 import com.github.pagehelper.util.StringUtil;
 import org.apache.ibatis.cache.CacheKey;
-import org.apache.ibatis.mapping.BoundSql;
-import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.RowBounds;
 
 import java.util.Properties;
@@ -46,32 +47,78 @@ import java.util.Properties;
 public class SqlServerRowBoundsDialect extends AbstractRowBoundsDialect {
     protected SqlServerParser pageSql = new SqlServerParser();
     protected ReplaceSql replaceSql;
+    protected Cache<String, String> CACHE_PAGESQL;
 
     @Override
-    public String getCountSql(MappedStatement ms, BoundSql boundSql, Object parameterObject, RowBounds rowBounds, CacheKey countKey) {
-        String sql = boundSql.getSql();
+    protected String convertToCountSql(String sql) {
+        if (sqlIndex != null) {
+            String countSql = sqlIndex.getCountSql(sql, "0");
+            if (countSql != null) {
+                return countSql;
+            }
+        }
         sql = replaceSql.replace(sql);
         sql = countSqlParser.getSmartCountSql(sql);
         sql = replaceSql.restore(sql);
         return sql;
     }
 
+    /**
+     * 获取缓存的分页模板
+     *
+     * @param sql
+     * @return
+     */
+    protected String getPageTemplate(String sql) {
+        String template = CACHE_PAGESQL.get(sql);
+        if (template == null) {
+            template = convertToPageTemplate(sql);
+            if (!BudgetJSqlParser.clearDegraded()) {
+                CACHE_PAGESQL.put(sql, template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * 生成分页模板，结果会被缓存
+     *
+     * @param sql
+     * @return
+     */
+    protected String convertToPageTemplate(String sql) {
+        if (sqlIndex != null) {
+            String pageSql = sqlIndex.getSqlServerPageSql(sql);
+            if (pageSql != null) {
+                return pageSql;
+            }
+        }
+        sql = replaceSql.replace(sql);
+        sql = pageSql.convertToPageSql(sql, null, null);
+        sql = replaceSql.restore(sql);
+        return sql;
+    }
+
     @Override
     public String getPageSql(String sql, RowBounds rowBounds, CacheKey pageKey) {
         //处理pageKey
         pageKey.update(rowBounds.getOffset());
         pageKey.update(rowBounds.getLimit());
-        sql = replaceSql.replace(sql);
-        sql = pageSql.convertToPageSql(sql, null, null);
-        sql = replaceSql.restore(sql);
-        sql = sql.replace(String.valueOf(Long.MIN_VALUE), String.valueOf(rowBounds.getOffset()));
-        sql = sql.replace(String.valueOf(Long.MAX_VALUE), String.valueOf(rowBounds.getLimit()));
+        sql = getPageTemplate(sql);
+        sql = sql.replace(SqlServerParser.START_ROW, String.valueOf(rowBounds.getOffset()));
+        sql = sql.replace(SqlServerParser.PAGE_SIZE, String.valueOf(rowBounds.getLimit()));
         return sql;
     }
 
     @Override
     public void setProperties(Properties properties) {
         super.setProperties(properties);
+        String sqlCacheClass = properties.getProperty("sqlCacheClass");
+        if (StringUtil.isNotEmpty(sqlCacheClass) && !sqlCacheClass.equalsIgnoreCase("false")) {
+            CACHE_PAGESQL = CacheFactory.createSqlCache(sqlCacheClass, "page", properties);
+        } else {
+            CACHE_PAGESQL = CacheFactory.createSqlCache(null, "page", properties);
+        }
         String replaceSql = properties.getProperty("replaceSql");
         if(StringUtil.isEmpty(replaceSql) || "simple".equalsIgnoreCase(replaceSql)){
             this.replaceSql = new SimpleWithNolockReplaceSql();
@@ -28,6 +28,8 @@ import com.github.pagehelper.AutoDialect;
 import com.github.pagehelper.Dialect;
 import com.github.pagehelper.PageException;
 import com.github.pagehelper.PageProperties;
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
 import com.github.pagehelper.dialect.AbstractHelperDialect;
 import com.github.pagehelper.dialect.auto.*;
 import com.github.pagehelper.dialect.helper.*;
@@ -36,12 +38,15 @@ import org.apache.ibatis.mapping.MappedStatement;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.SQLException;
+import java.sql.DatabaseMetaData;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.TreeMap;
+import java.util.concurrent.*;
 
 /**
  * 基础方言信息
@@ -52,11 +57,52 @@ public class PageAutoDialect {
 
     private static Map<String, Class<? extends Dialect>> dialectAliasMap = new HashMap<String, Class<? extends Dialect>>();
     private static Map<String, Class<? extends AutoDialect>> autoDialectMap = new HashMap<String, Class<? extends AutoDialect>>();
+    /**
+     * 按数据库主版本号选择的别名，key 为 jdbcUrl 识别出的别名
+     */
+    private static Map<String, TreeMap<Integer, String[]>> versionAliasMap = new ConcurrentHashMap<String, TreeMap<Integer, String[]>>();
 
     public static void registerDialectAlias(String alias, Class<? extends Dialect> dialectClass) {
         dialectAliasMap.put(alias, dialectClass);
     }
 
+    /**
+     * 注册按数据库版本选择的别名，自动识别为 alias 并且数据库主版本号不小于 majorVersion 时使用 versionAlias
+     *
+     * @param alias        jdbcUrl 识别出的别名，例如 "oracle"
+     * @param majorVersion {@link java.sql.DatabaseMetaData#getDatabaseMajorVersion()} 的最小值
+     * @param versionAlias 使用的别名，例如 "oracle12c"
+     */
+    public static void registerDialectAlias(String alias, int majorVersion, String versionAlias) {
+        registerDialectAlias(alias, majorVersion, versionAlias, null);
+    }
+
+    /**
+     * 注册按数据库版本选择的别名，只在数据库产品名称以 productNamePrefix 开头时使用，
+     * 例如 db2 for z/OS 和 LUW 的版本号不同，只有 LUW（产品名称为 DB2/平台）11 及以上使用 db2v11
+     * <p>
+     * 版本别名只在 alias 仍然对应注册时的实现类时使用，通过 dialectAlias 把 alias 替换为自定义实现后，不再按版本切换
+     *
+     * @param alias             jdbcUrl 识别出的别名，例如 "db2"
+     * @param majorVersion      {@link java.sql.DatabaseMetaData#getDatabaseMajorVersion()} 的最小值
+     * @param versionAlias      使用的别名，例如 "db2v11"
+     * @param productNamePrefix {@link java.sql.DatabaseMetaData#getDatabaseProductName()} 的前缀，为空时不限制
+     */
+    public static void registerDialectAlias(String alias, int majorVersion, String versionAlias, String productNamePrefix) {
+        Class<? extends Dialect> baseClass = dialectAliasMap.get(alias);
+        registerVersionAlias(alias, majorVersion, versionAlias, productNamePrefix, baseClass != null ? baseClass.getName() : null);
+    }
+
+    /**
+     * @param baseClassName alias 注册版本别名时对应的实现类，为空时不校验
+     */
+    private static void registerVersionAlias(String alias, int majorVersion, String versionAlias, String productNamePrefix, String baseClassName) {
+        TreeMap<Integer, String[]> versionMap = versionAliasMap.get(alias);
+        versionMap = versionMap != null ? new TreeMap<Integer, String[]>(versionMap) : new TreeMap<Integer, String[]>();
+        versionMap.put(majorVersion, new String[]{versionAlias, productNamePrefix, baseClassName});
+        versionAliasMap.put(alias, versionMap);
+    }
+
     static {
         //注册别名
         registerDialectAlias("hsqldb", HsqldbDialect.class);
@@ -73,7 +119,9 @@ public class PageAutoDialect {
 
         registerDialectAlias("oracle", OracleDialect.class);
         registerDialectAlias("oracle9i", Oracle9iDialect.class);
+        registerDialectAlias("oracle12c", Oracle12cDialect.class);
         registerDialectAlias("db2", Db2Dialect.class);
+        registerDialectAlias("db2v11", Db2v11Dialect.class);
         registerDialectAlias("as400", AS400Dialect.class);
         registerDialectAlias("informix", InformixDialect.class);
         //解决 informix-sqli #129，仍然保留上面的
@@ -106,6 +154,11 @@ public class PageAutoDialect {
         //openGauss数据库
         registerDialectAlias("opengauss",PostgreSqlDialect.class);
 
+        //高版本使用 OFFSET ... FETCH 分页
+        registerDialectAlias("oracle", 12, "oracle12c");
+        //db2 for z/OS 的版本号和 LUW 不同，只对 LUW 生效
+        registerDialectAlias("db2", 11, "db2v11", "DB2/");
+
         //注册 AutoDialect
         //想要实现和以前版本相同的效果时，可以配置 autoDialectClass=old
         registerAutoDialectAlias("old", DefaultAutoDialect.class);
@@ -114,6 +167,8 @@ public class PageAutoDialect {
         registerAutoDialectAlias("tomcat-jdbc", TomcatAutoDialect.class);
         registerAutoDialectAlias("dbcp", DbcpAutoDialect.class);
         registerAutoDialectAlias("c3p0", C3P0AutoDialect.class);
+        //动态数据源通过 lookupKeyResolver 获取方言
+        registerAutoDialectAlias("lookup", LookupKeyAutoDialect.class);
         //不配置时，默认使用 DataSourceNegotiationAutoDialect
         registerAutoDialectAlias("default", DataSourceNegotiationAutoDialect.class);
     }
@@ -131,11 +186,19 @@ public class PageAutoDialect {
      */
     private Properties properties;
     /**
-     * 缓存 dialect 实现，key 有两种，分别为 jdbcurl 和 dialectClassName
+     * 缓存 dialect 实现，key 为 jdbcurl、dialectClassName 或 AutoDialect 返回的其他 key（如数据源标识），通过 dialectCacheClass 和 dialect.* 参数配置
+     */
+    private Cache<Object, AbstractHelperDialect> urlDialectMap = CacheFactory.createCache(null, "dialect", new Properties());
+    /**
+     * 正在创建的方言，同一个 key 只会创建一次
+     */
+    private ConcurrentHashMap<Object, Future<AbstractHelperDialect>> pendingDialectMap = new ConcurrentHashMap<Object, Future<AbstractHelperDialect>>();
+    /**
+     * 按 DataSource 实例缓存方言，避免每次获取连接读取 url，配置 cacheDialectByDataSource=true 时启用
      */
-    private Map<Object, AbstractHelperDialect> urlDialectMap = new ConcurrentHashMap<Object, AbstractHelperDialect>();
-    private ReentrantLock lock = new ReentrantLock();
-    private AbstractHelperDialect delegate;
+    private ConcurrentHashMap<DataSourceKey, AbstractHelperDialect> dataSourceDialectMap;
+    private final ReferenceQueue<DataSource> dataSourceQueue = new ReferenceQueue<DataSource>();
+    private volatile AbstractHelperDialect delegate;
     private ThreadLocal<AbstractHelperDialect> dialectThreadLocal = new ThreadLocal<AbstractHelperDialect>();
     private AutoDialect autoDialectDelegate;
 
@@ -149,6 +212,81 @@ public class PageAutoDialect {
         return null;
     }
 
+    /**
+     * 根据数据库产品名称和版本选择更高效的分页方式，例如 oracle 12c 及以上版本使用 {@link Oracle12cDialect}
+     * <p>
+     * 只有 jdbcUrl 无法识别，或者识别出的别名注册了版本别名时才会获取连接读取 {@link DatabaseMetaData}，
+     * 方言按 key 缓存，因此同一个数据源只会读取一次。获取失败时使用原方言，配置 autoDialectVersion=false 时不读取
+     *
+     * @param dialect    根据 jdbcUrl 得到的方言，可以为 null
+     * @param dataSource
+     * @param properties
+     * @return
+     */
+    public static String fromDatabaseVersion(String dialect, DataSource dataSource, Properties properties) {
+        if (dataSource == null || (dialect != null && !versionAliasMap.containsKey(dialect))
+                || "false".equalsIgnoreCase(properties.getProperty("autoDialectVersion"))) {
+            return dialect;
+        }
+        Connection conn = null;
+        try {
+            conn = dataSource.getConnection();
+            DatabaseMetaData metaData = conn.getMetaData();
+            String productName = metaData.getDatabaseProductName();
+            if (dialect == null) {
+                dialect = fromProductName(productName);
+            }
+            TreeMap<Integer, String[]> versionMap = dialect != null ? versionAliasMap.get(dialect) : null;
+            if (versionMap != null) {
+                Class<? extends Dialect> baseClass = dialectAliasMap.get(dialect);
+                //从高到低找到第一个版本和产品名称都匹配的别名
+                for (String[] versionAlias : versionMap.headMap(metaData.getDatabaseMajorVersion(), true).descendingMap().values()) {
+                    //alias 已经被替换为其他实现时，不使用为原实现注册的版本别名
+                    if (versionAlias[2] != null && (baseClass == null || !versionAlias[2].equals(baseClass.getName()))) {
+                        continue;
+                    }
+                    if (versionAlias[1] == null || (productName != null && productName.startsWith(versionAlias[1]))) {
+                        return versionAlias[0];
+                    }
+                }
+            }
+        } catch (Exception e) {
+            //ignore
+        } finally {
+            if (conn != null) {
+                try {
+                    String closeConn = properties.getProperty("closeConn");
+                    if (StringUtil.isEmpty(closeConn) || Boolean.parseBoolean(closeConn)) {
+                        conn.close();
+                    }
+                } catch (Exception e) {
+                    //ignore
+                }
+            }
+        }
+        return dialect;
+    }
+
+    /**
+     * 根据数据库产品名称获取别名，忽略空格后匹配最长的别名，例如 "Microsoft SQL Server" 匹配 "sqlserver"
+     *
+     * @param productName
+     * @return
+     */
+    public static String fromProductName(String productName) {
+        if (productName == null) {
+            return null;
+        }
+        String name = productName.replaceAll("\\s+", "").toLowerCase();
+        String dialect = null;
+        for (String alias : dialectAliasMap.keySet()) {
+            if (name.contains(alias.toLowerCase()) && (dialect == null || alias.length() > dialect.length())) {
+                dialect = alias;
+            }
+        }
+        return dialect;
+    }
+
     //获取当前的代理对象
     public AbstractHelperDialect getDelegate() {
         if (delegate != null) {
@@ -208,20 +346,14 @@ public class PageAutoDialect {
      * @param ms
      * @param dialectClass 分页实现，必须是 {@link AbstractHelperDialect} 实现类，可以使用当前类中注册的别名，例如 "mysql", "oracle"
      */
-    public void initDelegateDialect(MappedStatement ms, String dialectClass) {
+    public void initDelegateDialect(MappedStatement ms, final String dialectClass) {
         if (StringUtil.isNotEmpty(dialectClass)) {
-            AbstractHelperDialect dialect = urlDialectMap.get(dialectClass);
-            if (dialect == null) {
-                lock.lock();
-                try {
-                    if ((dialect = urlDialectMap.get(dialectClass)) == null) {
-                        dialect = instanceDialect(dialectClass, properties);
-                        urlDialectMap.put(dialectClass, dialect);
-                    }
-                } finally {
-                    lock.unlock();
+            AbstractHelperDialect dialect = getOrCreateDialect(dialectClass, new Callable<AbstractHelperDialect>() {
+                @Override
+                public AbstractHelperDialect call() {
+                    return instanceDialect(dialectClass, properties);
                 }
-            }
+            });
             dialectThreadLocal.set(dialect);
         } else if (delegate == null) {
             if (autoDialect) {
@@ -238,22 +370,112 @@ public class PageAutoDialect {
      * @param ms
      * @return
      */
-    public AbstractHelperDialect autoGetDialect(MappedStatement ms) {
-        DataSource dataSource = ms.getConfiguration().getEnvironment().getDataSource();
-        Object dialectKey = autoDialectDelegate.extractDialectKey(ms, dataSource, properties);
+    public AbstractHelperDialect autoGetDialect(final MappedStatement ms) {
+        final DataSource dataSource = ms.getConfiguration().getEnvironment().getDataSource();
+        if (dataSourceDialectMap != null) {
+            AbstractHelperDialect dialect = dataSourceDialectMap.get(new DataSourceKey(dataSource, null));
+            if (dialect != null) {
+                return dialect;
+            }
+        }
+        final Object dialectKey = autoDialectDelegate.extractDialectKey(ms, dataSource, properties);
         if (dialectKey == null) {
             return autoDialectDelegate.extractDialect(dialectKey, ms, dataSource, properties);
-        } else if (!urlDialectMap.containsKey(dialectKey)) {
-            lock.lock();
-            try {
-                if (!urlDialectMap.containsKey(dialectKey)) {
-                    urlDialectMap.put(dialectKey, autoDialectDelegate.extractDialect(dialectKey, ms, dataSource, properties));
+        }
+        AbstractHelperDialect dialect = getOrCreateDialect(dialectKey, new Callable<AbstractHelperDialect>() {
+            @Override
+            public AbstractHelperDialect call() {
+                return autoDialectDelegate.extractDialect(dialectKey, ms, dataSource, properties);
+            }
+        });
+        if (dataSourceDialectMap != null) {
+            //清理已经被回收的 DataSource
+            Reference<? extends DataSource> reference;
+            while ((reference = dataSourceQueue.poll()) != null) {
+                dataSourceDialectMap.remove(reference);
+            }
+            dataSourceDialectMap.put(new DataSourceKey(dataSource, dataSourceQueue), dialect);
+        }
+        return dialect;
+    }
+
+    /**
+     * 获取缓存的方言，同一个 key 只会创建一次，不同 key 之间互不阻塞
+     *
+     * @param key
+     * @param creator
+     * @return
+     */
+    private AbstractHelperDialect getOrCreateDialect(Object key, Callable<AbstractHelperDialect> creator) {
+        AbstractHelperDialect dialect = urlDialectMap.get(key);
+        if (dialect != null) {
+            return dialect;
+        }
+        Future<AbstractHelperDialect> future = pendingDialectMap.get(key);
+        if (future == null) {
+            FutureTask<AbstractHelperDialect> task = new FutureTask<AbstractHelperDialect>(creator);
+            future = pendingDialectMap.putIfAbsent(key, task);
+            if (future == null) {
+                try {
+                    //可能刚被其他线程创建完成
+                    dialect = urlDialectMap.get(key);
+                    if (dialect != null) {
+                        return dialect;
+                    }
+                    task.run();
+                    dialect = getDialect(task);
+                    urlDialectMap.put(key, dialect);
+                    return dialect;
+                } finally {
+                    //创建失败时允许重试
+                    pendingDialectMap.remove(key, task);
                 }
-            } finally {
-                lock.unlock();
             }
         }
-        return urlDialectMap.get(dialectKey);
+        return getDialect(future);
+    }
+
+    private AbstractHelperDialect getDialect(Future<AbstractHelperDialect> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PageException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new PageException(e.getCause());
+        }
+    }
+
+    /**
+     * 弱引用的 DataSource key，按实例比较
+     */
+    private static class DataSourceKey extends WeakReference<DataSource> {
+        private final int hash;
+
+        DataSourceKey(DataSource dataSource, ReferenceQueue<DataSource> queue) {
+            super(dataSource, queue);
+            this.hash = System.identityHashCode(dataSource);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DataSourceKey)) {
+                return false;
+            }
+            DataSource dataSource = get();
+            return dataSource != null && dataSource == ((DataSourceKey) o).get();
+        }
     }
 
     /**
@@ -300,6 +522,12 @@ public class PageAutoDialect {
                     throw new IllegalArgumentException("dialectAlias 参数配置错误，" +
                             "请按照 alias1=xx.dialectClass;alias2=dialectClass2 的形式进行配置!");
                 }
+                //alias@majorVersion=dialectClass 形式配置按版本选择的实现
+                int index = kv[0].indexOf('@');
+                if (index > 0) {
+                    //明确配置的版本别名不校验 alias 的实现类
+                    registerVersionAlias(kv[0].substring(0, index), Integer.parseInt(kv[0].substring(index + 1).trim()), kv[0], null, null);
+                }
                 for (int j = 0; j < kv.length; j++) {
                     try {
                         Class<? extends Dialect> diallectClass = (Class<? extends Dialect>) Class.forName(kv[1]);
@@ -314,6 +542,9 @@ public class PageAutoDialect {
     }
 
     public void setProperties(Properties properties) {
+        //方言缓存，key 为 jdbcurl、dialectClassName 或数据源标识，可以通过 dialect.size 等参数限制大小
+        String dialectCacheClass = properties.getProperty("dialectCacheClass");
+        this.urlDialectMap = CacheFactory.createCache(dialectCacheClass, "dialect", properties);
         //初始化自定义AutoDialect
         initAutoDialectClass(properties);
         //使用 sqlserver2012 作为默认分页方式，这种情况在动态数据源时方便使用
@@ -321,8 +552,17 @@ public class PageAutoDialect {
         if (StringUtil.isNotEmpty(useSqlserver2012) && Boolean.parseBoolean(useSqlserver2012)) {
             registerDialectAlias("sqlserver", SqlServer2012Dialect.class);
             registerDialectAlias("sqlserver2008", SqlServerDialect.class);
+        } else if ("auto".equalsIgnoreCase(useSqlserver2012)) {
+            //OFFSET ... FETCH 要求 sql 中包含 order by，因此只有配置为 auto 时才按版本（2012 为 11）自动选择
+            registerDialectAlias("sqlserver", 11, "sqlserver2012");
         }
         initDialectAlias(properties);
+        //DataSource 不会在运行时切换目标库时（不是动态数据源），可以按 DataSource 实例缓存方言，
+        //LookupKeyAutoDialect 用于动态数据源，按数据源标识缓存，不使用该缓存
+        if (Boolean.parseBoolean(properties.getProperty("cacheDialectByDataSource"))
+                && !(autoDialectDelegate instanceof LookupKeyAutoDialect)) {
+            this.dataSourceDialectMap = new ConcurrentHashMap<DataSourceKey, AbstractHelperDialect>();
+        }
         //指定的 Helper 数据库方言，和  不同
         String dialect = properties.getProperty("helperDialect");
         //运行时获取数据源
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.page;
+
+import com.github.pagehelper.Page;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 分页上下文的载体，用于在线程间传递 Page 参数，例如在线程池中执行查询时：
+ * <pre>
+ * PageHelper.startPage(1, 10);
+ * executor.submit(PageContext.capture().wrap(new Callable&lt;List&lt;User&gt;&gt;() {
+ *     public List&lt;User&gt; call() {
+ *         return userMapper.selectAll();
+ *     }
+ * }));
+ * </pre>
+ * capture 会取走当前线程的 Page 参数，避免当前线程后续的查询被分页
+ *
+ * @author liuzh
+ */
+public class PageContext {
+    private final Page<?> page;
+
+    public PageContext(Page<?> page) {
+        this.page = page;
+    }
+
+    /**
+     * 取走当前线程中的 Page 参数
+     *
+     * @return
+     */
+    public static PageContext capture() {
+        Page<?> page = PageMethod.getLocalPage();
+        PageMethod.clearPage();
+        return new PageContext(page);
+    }
+
+    public Page<?> getPage() {
+        return page;
+    }
+
+    /**
+     * 在执行 runnable 时使用当前上下文，执行后恢复原来的上下文
+     *
+     * @param runnable
+     * @return
+     */
+    public Runnable wrap(final Runnable runnable) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Page<?> old = attach();
+                try {
+                    runnable.run();
+                } finally {
+                    detach(old);
+                }
+            }
+        };
+    }
+
+    /**
+     * 在执行 callable 时使用当前上下文，执行后恢复原来的上下文
+     *
+     * @param callable
+     * @return
+     */
+    public <V> Callable<V> wrap(final Callable<V> callable) {
+        return new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                Page<?> old = attach();
+                try {
+                    return callable.call();
+                } finally {
+                    detach(old);
+                }
+            }
+        };
+    }
+
+    private Page<?> attach() {
+        Page<?> old = PageMethod.getLocalPage();
+        if (page != null) {
+            PageMethod.setLocalPage(page);
+        } else {
+            PageMethod.clearPage();
+        }
+        return old;
+    }
+
+    private void detach(Page<?> old) {
+        if (old != null) {
+            PageMethod.setLocalPage(old);
+        } else {
+            PageMethod.clearPage();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.page;
+
+/**
+ * 分页上下文（Page 参数）的存储方式，默认使用 {@link ThreadLocalPageContextHolder}
+ * <p>
+ * 可以通过 pageContextHolder 参数配置为 inheritable（使用 InheritableThreadLocal）或自定义实现的全限定类名，
+ * 自定义实现需要提供无参构造方法
+ *
+ * @author liuzh
+ */
+public interface PageContextHolder<T> {
+
+    /**
+     * 获取当前上下文中的值
+     *
+     * @return
+     */
+    T get();
+
+    /**
+     * 设置当前上下文中的值
+     *
+     * @param value
+     */
+    void set(T value);
+
+    /**
+     * 移除当前上下文中的值
+     */
+    void remove();
+
+}
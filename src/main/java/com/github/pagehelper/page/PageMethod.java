@@ -26,7 +26,9 @@ package com.github.pagehelper.page;
 
 import com.github.pagehelper.ISelect;
 import com.github.pagehelper.Page;
+import com.github.pagehelper.PageException;
 import com.github.pagehelper.util.PageObjectUtil;
+import com.github.pagehelper.util.StringUtil;
 
 import java.util.Properties;
 
@@ -38,6 +40,7 @@ import java.util.Properties;
 public abstract class PageMethod {
     protected static final ThreadLocal<Page> LOCAL_PAGE = new ThreadLocal<Page>();
     protected static boolean DEFAULT_COUNT = true;
+    protected static volatile PageContextHolder<Page> PAGE_CONTEXT = new ThreadLocalPageContextHolder<Page>(LOCAL_PAGE);
 
     /**
      * 设置 Page 参数
@@ -45,7 +48,7 @@ public abstract class PageMethod {
      * @param page
      */
     protected static void setLocalPage(Page page) {
-        LOCAL_PAGE.set(page);
+        PAGE_CONTEXT.set(page);
     }
 
     /**
@@ -54,14 +57,33 @@ public abstract class PageMethod {
      * @return
      */
     public static <T> Page<T> getLocalPage() {
-        return LOCAL_PAGE.get();
+        return PAGE_CONTEXT.get();
     }
 
     /**
      * 移除本地变量
      */
     public static void clearPage() {
-        LOCAL_PAGE.remove();
+        PAGE_CONTEXT.remove();
+    }
+
+    /**
+     * 创建分页上下文
+     *
+     * @param pageContextHolder 为空时使用 ThreadLocal，inheritable 时使用 InheritableThreadLocal，否则为实现类的全限定名
+     * @return
+     */
+    protected static <T> PageContextHolder<T> newPageContextHolder(String pageContextHolder) {
+        if (StringUtil.isEmpty(pageContextHolder)) {
+            return new ThreadLocalPageContextHolder<T>();
+        } else if ("inheritable".equalsIgnoreCase(pageContextHolder)) {
+            return new ThreadLocalPageContextHolder<T>(new InheritableThreadLocal<T>());
+        }
+        try {
+            return (PageContextHolder<T>) Class.forName(pageContextHolder).newInstance();
+        } catch (Exception e) {
+            throw new PageException("初始化 pageContextHolder [" + pageContextHolder + "]时出错:" + e.getMessage(), e);
+        }
     }
 
     /**
@@ -202,6 +224,11 @@ public abstract class PageMethod {
         //defaultCount，这是一个全局生效的参数，多数据源时也是统一的行为
         if(properties != null){
             DEFAULT_COUNT = Boolean.valueOf(properties.getProperty("defaultCount", "true"));
+            //pageContextHolder，和 defaultCount 一样全局生效，不配置时使用 LOCAL_PAGE
+            String pageContextHolder = properties.getProperty("pageContextHolder");
+            if (StringUtil.isNotEmpty(pageContextHolder)) {
+                PAGE_CONTEXT = newPageContextHolder(pageContextHolder);
+            }
         }
     }
 
@@ -27,6 +27,7 @@ package com.github.pagehelper.page;
 import com.github.pagehelper.IPage;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageRequest;
 import com.github.pagehelper.PageRowBounds;
 import com.github.pagehelper.util.PageObjectUtil;
 import com.github.pagehelper.util.StringUtil;
@@ -65,8 +66,11 @@ public class PageParams {
      * @return
      */
     public Page getPage(Object parameterObject, RowBounds rowBounds) {
-        Page page = PageHelper.getLocalPage();
-        if (page == null) {
+        Page page;
+        //显式传递的分页参数优先，不会设置到当前线程
+        if (rowBounds instanceof PageRequest) {
+            page = ((PageRequest) rowBounds).getPage();
+        } else if ((page = PageHelper.getLocalPage()) == null) {
             if (rowBounds != RowBounds.DEFAULT) {
                 if (offsetAsPageNum) {
                     page = new Page(rowBounds.getOffset(), rowBounds.getLimit(), rowBoundsWithCount);
@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.page;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageException;
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 多页预取，一次查询 {@link Page#getPrefetch()} 页数据，保存到缓存中供后续页使用
+ * <p>
+ * 缓存的 key 为查询的 CacheKey（包含 environment、sql 和参数）、数据源和排序、页面大小，每个查询只保存最后一次预取的数据。
+ * 动态数据源（如 AbstractRoutingDataSource）在运行时切换目标库，数据源对象不变，无法区分不同库的数据，这种情况不要使用预取。
+ * 缓存通过 prefetchCache 指定实现类，参数前缀为 prefetch，例如 prefetch.maximumSize, prefetch.expireAfterWrite
+ * <p>
+ * 缓存的数据在多个会话和线程之间共享，因此每行数据序列化后保存，每次获取时反序列化得到新的对象，
+ * 修改返回的对象不会影响缓存和其他查询。结果中包含没有实现 {@link Serializable} 的对象时不缓存，后续页仍然正常查询。
+ *
+ * @author liuzh
+ */
+public class PagePrefetch {
+    private Cache<String, Block> cache;
+
+    public void setProperties(Properties properties) {
+        cache = CacheFactory.createCache(properties.getProperty("prefetchCache"), "prefetch", properties);
+    }
+
+    /**
+     * 是否需要预取
+     *
+     * @param page
+     * @return
+     */
+    public boolean isPrefetch(Page page) {
+        return page != null && page.getPrefetch() > 1 && page.getPageSize() > 0 && !page.isOrderByOnly();
+    }
+
+    /**
+     * 生成缓存 key
+     */
+    public String getKey(Executor executor, MappedStatement ms, Object parameter, BoundSql boundSql, Page page) {
+        Environment environment = ms.getConfiguration().getEnvironment();
+        String dataSource = environment != null && environment.getDataSource() != null
+                ? environment.getDataSource().getClass().getName() + "@" + System.identityHashCode(environment.getDataSource())
+                : "";
+        return executor.createCacheKey(ms, parameter, RowBounds.DEFAULT, boundSql).toString()
+                + ":" + dataSource + ":" + page.getOrderBy() + ":" + page.getPageSize() + ":" + page.isCount();
+    }
+
+    /**
+     * 从缓存中获取当前页的数据，同时设置总数
+     *
+     * @param key
+     * @param page
+     * @return 不存在时返回 null
+     */
+    public List get(String key, Page page) {
+        Block block = cache.get(key);
+        if (block == null) {
+            return null;
+        }
+        if (!block.contains(page)) {
+            return null;
+        }
+        if (page.isCount()) {
+            page.setTotal(block.total);
+            //分页合理化时 setTotal 可能修改页码
+            if (!block.contains(page)) {
+                return null;
+            }
+        }
+        long startRow = page.getStartRow();
+        int from = (int) Math.min(startRow - block.startRow, block.rows.size());
+        int to = (int) Math.min(from + page.getPageSize(), block.rows.size());
+        List result = new ArrayList(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(deserialize(block.rows.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * 保存预取的数据
+     *
+     * @param key
+     * @param page
+     * @param rows
+     */
+    public void put(String key, Page page, List rows) {
+        List<byte[]> serialized = new ArrayList<byte[]>(rows.size());
+        for (Object row : rows) {
+            byte[] bytes = serialize(row);
+            if (bytes == null) {
+                //无法复制的数据不缓存，避免不同会话共享同一个对象
+                return;
+            }
+            serialized.add(bytes);
+        }
+        long startRow = page.getStartRow();
+        cache.put(key, new Block(startRow, startRow + (long) page.getPageSize() * page.getPrefetch(), page.getTotal(), serialized));
+    }
+
+    /**
+     * @return 不能序列化时返回 null
+     */
+    private static byte[] serialize(Object row) {
+        if (row != null && !(row instanceof Serializable)) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(row);
+            oos.flush();
+            return bos.toByteArray();
+        } catch (NotSerializableException e) {
+            //属性中包含不能序列化的对象
+            return null;
+        } catch (IOException e) {
+            throw new PageException("序列化预取数据失败", e);
+        }
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    try {
+                        return Resources.classForName(desc.getName());
+                    } catch (ClassNotFoundException e) {
+                        return super.resolveClass(desc);
+                    }
+                }
+            };
+            return ois.readObject();
+        } catch (Exception e) {
+            throw new PageException("反序列化预取数据失败", e);
+        }
+    }
+
+    static class Block {
+        private final long         startRow;
+        private final long         endRow;
+        private final long         total;
+        private final List<byte[]> rows;
+
+        Block(long startRow, long endRow, long total, List<byte[]> rows) {
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.total = total;
+            this.rows = rows;
+        }
+
+        boolean contains(Page page) {
+            long startRow = page.getStartRow();
+            return startRow >= this.startRow && startRow + page.getPageSize() <= this.endRow;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.page;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.parser.WindowCountSqlParser;
+import com.github.pagehelper.util.StringUtil;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * 窗口函数 count，分页 sql 中追加 <code>COUNT(*) OVER() PAGEHELPER_TOTAL</code>，一次查询同时得到当前页数据和总数
+ * <p>
+ * 通过包装 {@link ResultSetHandler} 读取第一行的总数，并且对结果映射隐藏总数列。
+ * 方言不支持或者 sql 无法改写时，仍然执行 count 查询；当前页没有数据时无法得到总数，除第一页外也会执行 count 查询
+ *
+ * @author liuzh
+ */
+public class PageWindowCount {
+    private static final ThreadLocal<State> STATE = new ThreadLocal<State>();
+    private              boolean            windowCount;
+
+    public void setProperties(Properties properties) {
+        windowCount = Boolean.parseBoolean(properties.getProperty("windowCount"));
+    }
+
+    /**
+     * 是否使用窗口函数 count，分页合理化时需要先得到总数修正页码，count(列) 和 count(*) 结果不同，这两种情况不支持
+     *
+     * @param page
+     * @param resultHandler
+     * @return
+     */
+    public boolean isWindowCount(Page page, ResultHandler resultHandler) {
+        if (!windowCount || page == null || resultHandler != null || page.getPageSize() <= 0
+                || Boolean.TRUE.equals(page.getReasonable())) {
+            return false;
+        }
+        String countColumn = page.getCountColumn();
+        return StringUtil.isEmpty(countColumn) || "*".equals(countColumn) || countColumn.matches("\\d+");
+    }
+
+    /**
+     * 开始窗口函数 count 查询
+     *
+     * @return
+     */
+    public static State start() {
+        State state = new State();
+        STATE.set(state);
+        return state;
+    }
+
+    /**
+     * 结束窗口函数 count 查询
+     */
+    public static void end() {
+        STATE.remove();
+    }
+
+    /**
+     * 当前分页查询是否需要追加总数列，方言改写 sql 后需要调用 {@link #applied()}
+     *
+     * @return
+     */
+    public static boolean isRequested() {
+        State state = STATE.get();
+        return state != null && !state.applied;
+    }
+
+    /**
+     * 标记分页 sql 已经追加了总数列
+     */
+    public static void applied() {
+        State state = STATE.get();
+        if (state != null) {
+            state.applied = true;
+        }
+    }
+
+    /**
+     * 开启时包装 {@link ResultSetHandler}，其他对象原样返回
+     *
+     * @param target
+     * @return
+     */
+    public Object wrap(Object target) {
+        if (windowCount && target instanceof ResultSetHandler) {
+            return Proxy.newProxyInstance(ResultSetHandler.class.getClassLoader(),
+                    new Class[]{ResultSetHandler.class}, new ResultSetHandlerInvocation(target));
+        }
+        return target;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * 列序号不小于总数列时跳过总数列
+     */
+    private static Object[] shiftColumn(Method method, Object[] args, int totalIndex) {
+        if (args != null && args.length > 0 && args[0] instanceof Integer
+                && method.getParameterTypes()[0] == int.class && (Integer) args[0] >= totalIndex) {
+            args = args.clone();
+            args[0] = (Integer) args[0] + 1;
+        }
+        return args;
+    }
+
+    /**
+     * 当前线程窗口函数 count 查询的状态
+     */
+    public static class State {
+        private boolean applied;
+        private boolean handled;
+        private Long    total;
+
+        /**
+         * @return 分页 sql 是否追加了总数列
+         */
+        public boolean isApplied() {
+            return applied;
+        }
+
+        /**
+         * @return 总数，没有执行查询（如命中缓存）或者查询结果为空时返回 null
+         */
+        public Long getTotal() {
+            return total;
+        }
+    }
+
+    private static class ResultSetHandlerInvocation implements InvocationHandler {
+        private final Object target;
+
+        ResultSetHandlerInvocation(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("handleResultSets".equals(method.getName())) {
+                State state = STATE.get();
+                //只处理分页查询本身，嵌套查询原样执行
+                if (state != null && state.applied && !state.handled) {
+                    state.handled = true;
+                    args = new Object[]{Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                            new Class[]{Statement.class}, new StatementInvocation((Statement) args[0], state))};
+                }
+            }
+            return PageWindowCount.invoke(target, method, args);
+        }
+    }
+
+    private static class StatementInvocation implements InvocationHandler {
+        private final Statement statement;
+        private final State     state;
+        private       boolean   wrapped;
+
+        StatementInvocation(Statement statement, State state) {
+            this.statement = statement;
+            this.state = state;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = PageWindowCount.invoke(statement, method, args);
+            if (!wrapped && result instanceof ResultSet && "getResultSet".equals(method.getName())) {
+                //只有第一个结果集是分页查询的结果
+                wrapped = true;
+                ResultSet resultSet = (ResultSet) result;
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if (WindowCountSqlParser.TOTAL_COLUMN.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                        return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                                new Class[]{ResultSet.class}, new ResultSetInvocation(resultSet, i, state));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class ResultSetInvocation implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final int       totalIndex;
+        private final State     state;
+
+        ResultSetInvocation(ResultSet resultSet, int totalIndex, State state) {
+            this.resultSet = resultSet;
+            this.totalIndex = totalIndex;
+            this.state = state;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("next".equals(name)) {
+                boolean next = resultSet.next();
+                if (next && state.total == null) {
+                    state.total = resultSet.getLong(totalIndex);
+                }
+                return next;
+            } else if ("getMetaData".equals(name)) {
+                return Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                        new Class[]{ResultSetMetaData.class}, new MetaDataInvocation(resultSet.getMetaData(), totalIndex));
+            } else if ("findColumn".equals(name)) {
+                int index = resultSet.findColumn((String) args[0]);
+                return index > totalIndex ? index - 1 : index;
+            } else if (name.startsWith("get") || name.startsWith("update")) {
+                args = shiftColumn(method, args, totalIndex);
+            }
+            return PageWindowCount.invoke(resultSet, method, args);
+        }
+    }
+
+    private static class MetaDataInvocation implements InvocationHandler {
+        private final ResultSetMetaData metaData;
+        private final int               totalIndex;
+
+        MetaDataInvocation(ResultSetMetaData metaData, int totalIndex) {
+            this.metaData = metaData;
+            this.totalIndex = totalIndex;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("getColumnCount".equals(method.getName())) {
+                return metaData.getColumnCount() - 1;
+            }
+            return PageWindowCount.invoke(metaData, method, shiftColumn(method, args, totalIndex));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+import com.github.pagehelper.JSqlParser;
+import com.github.pagehelper.PageException;
+import com.github.pagehelper.PageProperties;
+import com.github.pagehelper.util.StringUtil;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.Statement;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 限制解析时间和 SQL 长度的 {@link JSqlParser}，通过 sqlParser 参数配置：
+ * <pre>
+ * sqlParser=com.github.pagehelper.parser.BudgetJSqlParser
+ * </pre>
+ * 解析在后台线程中执行，超过 sqlParser.timeout 毫秒（默认 100）或 SQL 长度超过 sqlParser.maxLength（默认不限制）时，
+ * 当前请求直接抛出 {@link JSQLParserException}，由调用方降级处理（例如 count 查询使用简单的外层包装），
+ * 解析在后台继续执行，完成后由下一次相同 SQL 的请求取走结果，此时生成的智能改写才会被缓存。
+ * <p>
+ * 支持的配置：
+ * <ul>
+ * <li>sqlParser.timeout: 解析超时时间（毫秒），默认 100</li>
+ * <li>sqlParser.maxLength: 超过该长度的 SQL 只在后台解析，默认 0 不限制</li>
+ * <li>sqlParser.threads: 后台解析线程数，默认 2</li>
+ * <li>sqlParser.queueSize: 等待解析的最大数量，默认 100</li>
+ * </ul>
+ *
+ * @author liuzh
+ */
+public class BudgetJSqlParser implements JSqlParser, PageProperties {
+    private static final AtomicInteger        POOL_NUMBER = new AtomicInteger();
+    /**
+     * 当前线程最近一次解析是否被降级，降级的结果不应该被缓存
+     */
+    private static final ThreadLocal<Boolean> DEGRADED    = new ThreadLocal<Boolean>();
+
+    private final ConcurrentHashMap<String, Future<Statement>> tasks = new ConcurrentHashMap<String, Future<Statement>>();
+    private       JSqlParser                                   delegate = DEFAULT;
+    private       long                                         timeout  = 100;
+    private       int                                          maxLength;
+    private       int                                          maxTasks;
+    private       ThreadPoolExecutor                           executor;
+
+    public BudgetJSqlParser() {
+        setProperties(new Properties());
+    }
+
+    /**
+     * 获取并清除当前线程的降级标记
+     *
+     * @return 从上次调用到现在是否发生过降级
+     */
+    public static boolean clearDegraded() {
+        Boolean degraded = DEGRADED.get();
+        if (degraded != null) {
+            DEGRADED.remove();
+            return degraded;
+        }
+        return false;
+    }
+
+    /**
+     * 解析必须得到结果的 SQL，例如没有降级方式的 sqlserver 分页，不限制解析时间
+     *
+     * @param jSqlParser
+     * @param sql
+     * @return
+     * @throws JSQLParserException
+     */
+    public static Statement parseRequired(JSqlParser jSqlParser, String sql) throws JSQLParserException {
+        if (jSqlParser instanceof BudgetJSqlParser) {
+            return ((BudgetJSqlParser) jSqlParser).parse(sql, true);
+        }
+        return jSqlParser.parse(sql);
+    }
+
+    @Override
+    public Statement parse(String statementReader) throws JSQLParserException {
+        return parse(statementReader, false);
+    }
+
+    /**
+     * 解析 SQL
+     *
+     * @param statementReader
+     * @param required        为 true 时一直等待解析结果
+     * @return
+     * @throws JSQLParserException
+     */
+    public Statement parse(String statementReader, boolean required) throws JSQLParserException {
+        while (true) {
+            Future<Statement> future = tasks.get(statementReader);
+            long wait = 0;
+            if (future == null) {
+                if (required) {
+                    return delegate.parse(statementReader);
+                }
+                future = submit(statementReader);
+                //长 SQL 不等待
+                wait = maxLength > 0 && statementReader.length() > maxLength ? 0 : timeout;
+            }
+            Statement statement;
+            try {
+                statement = required ? future.get() : future.get(wait, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw degrade("SQL 解析超过 " + timeout + "ms，已转为后台解析");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw degrade("SQL 解析被中断");
+            } catch (ExecutionException e) {
+                tasks.remove(statementReader, future);
+                if (e.getCause() instanceof JSQLParserException) {
+                    throw (JSQLParserException) e.getCause();
+                }
+                throw new JSQLParserException(e.getCause());
+            }
+            //解析结果会被修改，只能被一个请求使用
+            if (tasks.remove(statementReader, future)) {
+                return statement;
+            }
+        }
+    }
+
+    private Future<Statement> submit(final String sql) throws JSQLParserException {
+        if (tasks.size() >= maxTasks) {
+            //清理已经完成但是没有被取走的结果
+            Iterator<Map.Entry<String, Future<Statement>>> iterator = tasks.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getValue().isDone()) {
+                    iterator.remove();
+                }
+            }
+            if (tasks.size() >= maxTasks) {
+                throw degrade("等待解析的 SQL 过多");
+            }
+        }
+        FutureTask<Statement> task = new FutureTask<Statement>(new Callable<Statement>() {
+            @Override
+            public Statement call() throws Exception {
+                return delegate.parse(sql);
+            }
+        });
+        Future<Statement> exists = tasks.putIfAbsent(sql, task);
+        if (exists != null) {
+            return exists;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            tasks.remove(sql, task);
+            throw degrade("等待解析的 SQL 过多");
+        }
+        return task;
+    }
+
+    private JSQLParserException degrade(String message) {
+        DEGRADED.set(Boolean.TRUE);
+        return new JSQLParserException(message);
+    }
+
+    /**
+     * @return 后台解析中或者等待被取走的数量
+     */
+    public int getPendingCount() {
+        return tasks.size();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        String timeout = properties.getProperty("sqlParser.timeout");
+        if (StringUtil.isNotEmpty(timeout)) {
+            this.timeout = Long.parseLong(timeout);
+        }
+        String maxLength = properties.getProperty("sqlParser.maxLength");
+        if (StringUtil.isNotEmpty(maxLength)) {
+            this.maxLength = Integer.parseInt(maxLength);
+        }
+        int threads = 2;
+        String value = properties.getProperty("sqlParser.threads");
+        if (StringUtil.isNotEmpty(value)) {
+            threads = Integer.parseInt(value);
+        }
+        int queueSize = 100;
+        value = properties.getProperty("sqlParser.queueSize");
+        if (StringUtil.isNotEmpty(value)) {
+            queueSize = Integer.parseInt(value);
+        }
+        this.maxTasks = threads + queueSize;
+        String delegate = properties.getProperty("sqlParser.delegate");
+        if (StringUtil.isNotEmpty(delegate)) {
+            try {
+                this.delegate = (JSqlParser) Class.forName(delegate).newInstance();
+            } catch (Exception e) {
+                throw new PageException("sqlParser.delegate 配置错误: " + delegate, e);
+            }
+        }
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+        final int poolNumber = POOL_NUMBER.incrementAndGet();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "pagehelper-sql-parser-" + poolNumber + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.*;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 去掉 count 查询中不影响结果的 left join
+ * <p>
+ * 当 left join 的表通过声明的唯一键关联（例如 <code>left join dept d on d.id = u.dept_id</code>，dept.id 唯一），
+ * 每一行最多匹配一行，并且该表在 where、order by 和其他 join 中都没有被引用时，去掉这个 join 不会改变总数。
+ * 无法确定所属表的列（没有表名或别名限定）会被认为引用了关联表，此时不会去掉 join。
+ *
+ * @author liuzh
+ */
+public class CountJoinEliminator {
+    private final Map<String, Set<String>> uniqueKeys = new HashMap<String, Set<String>>();
+
+    /**
+     * @param uniqueKeys 唯一键，格式为 表名.列名，多个用逗号或分号隔开，例如 dept.id,role.code
+     */
+    public CountJoinEliminator(String uniqueKeys) {
+        for (String key : uniqueKeys.split("[,;]")) {
+            key = key.trim();
+            int index = key.lastIndexOf('.');
+            if (index <= 0 || index == key.length() - 1) {
+                continue;
+            }
+            String table = normalize(key.substring(0, index));
+            Set<String> columns = this.uniqueKeys.get(table);
+            if (columns == null) {
+                columns = new HashSet<String>();
+                this.uniqueKeys.put(table, columns);
+            }
+            columns.add(normalize(key.substring(index + 1)));
+        }
+    }
+
+    /**
+     * 去掉不影响总数的 join，从后往前处理，后面的 join 去掉后，前面被它引用的 join 也可能被去掉
+     *
+     * @param select 已经转换为 count 的查询
+     */
+    public void eliminate(PlainSelect select) {
+        List<Join> joins = select.getJoins();
+        if (joins == null || joins.isEmpty()) {
+            return;
+        }
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            Join join = joins.get(i);
+            String name = getUniqueJoinName(join);
+            if (name != null && !isReferenced(select, join, name)) {
+                joins.remove(i);
+            }
+        }
+        if (joins.isEmpty()) {
+            select.setJoins(null);
+        }
+    }
+
+    /**
+     * 通过唯一键关联的 left join 返回关联表的名称（有别名时为别名），否则返回 null
+     *
+     * @param join
+     * @return
+     */
+    protected String getUniqueJoinName(Join join) {
+        if (!join.isLeft() || join.isNatural() || join.isApply()
+                || !(join.getRightItem() instanceof Table)
+                || (join.getUsingColumns() != null && !join.getUsingColumns().isEmpty())
+                || join.getOnExpressions() == null || join.getOnExpressions().isEmpty()
+                //去掉 join 中的参数会导致参数个数错误
+                || join.toString().indexOf('?') >= 0) {
+            return null;
+        }
+        Table table = (Table) join.getRightItem();
+        Set<String> columns = uniqueKeys.get(normalize(table.getName()));
+        if (columns == null) {
+            return null;
+        }
+        String name = normalize(table.getAlias() != null ? table.getAlias().getName() : table.getName());
+        List<Expression> conditions = new ArrayList<Expression>();
+        for (Expression on : join.getOnExpressions()) {
+            flatAnd(on, conditions);
+        }
+        for (Expression condition : conditions) {
+            if (condition instanceof EqualsTo) {
+                EqualsTo equalsTo = (EqualsTo) condition;
+                if ((isUniqueKey(equalsTo.getLeftExpression(), name, columns) && !references(equalsTo.getRightExpression(), name))
+                        || (isUniqueKey(equalsTo.getRightExpression(), name, columns) && !references(equalsTo.getLeftExpression(), name))) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void flatAnd(Expression expression, List<Expression> conditions) {
+        if (expression instanceof AndExpression) {
+            flatAnd(((AndExpression) expression).getLeftExpression(), conditions);
+            flatAnd(((AndExpression) expression).getRightExpression(), conditions);
+        } else {
+            conditions.add(expression);
+        }
+    }
+
+    private boolean isUniqueKey(Expression expression, String name, Set<String> columns) {
+        if (!(expression instanceof Column)) {
+            return false;
+        }
+        Column column = (Column) expression;
+        return column.getTable() != null && column.getTable().getName() != null
+                && name.equals(normalize(column.getTable().getName()))
+                && columns.contains(normalize(column.getColumnName()));
+    }
+
+    /**
+     * 查询中除了当前 join 之外的部分是否引用了关联表
+     */
+    protected boolean isReferenced(PlainSelect select, Join current, String name) {
+        if (select.getWhere() != null && references(select.getWhere(), name)) {
+            return true;
+        }
+        if (select.getOrderByElements() != null) {
+            for (OrderByElement orderByElement : select.getOrderByElements()) {
+                if (references(orderByElement.getExpression(), name)) {
+                    return true;
+                }
+            }
+        }
+        for (Join join : select.getJoins()) {
+            if (join == current) {
+                continue;
+            }
+            if (!(join.getRightItem() instanceof Table) && textReferences(join.getRightItem().toString(), name)) {
+                return true;
+            }
+            if (join.getOnExpressions() != null) {
+                for (Expression on : join.getOnExpressions()) {
+                    if (references(on, name)) {
+                        return true;
+                    }
+                }
+            }
+            if (join.getUsingColumns() != null && !join.getUsingColumns().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 表达式是否引用了关联表，没有限定表名的列无法确定，也认为引用了
+     */
+    protected boolean references(Expression expression, final String name) {
+        final boolean[] referenced = new boolean[1];
+        expression.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                Table table = column.getTable();
+                if (table == null || table.getName() == null || name.equals(normalize(table.getName()))) {
+                    referenced[0] = true;
+                }
+            }
+
+            @Override
+            public void visit(SubSelect subSelect) {
+                if (textReferences(subSelect.toString(), name)) {
+                    referenced[0] = true;
+                }
+            }
+        });
+        return referenced[0];
+    }
+
+    private boolean textReferences(String sql, String name) {
+        return Pattern.compile("(^|[^\\w$])[`\"\\[]?" + Pattern.quote(name) + "[`\"\\]]?\\s*\\.", Pattern.CASE_INSENSITIVE)
+                .matcher(sql).find();
+    }
+
+    private static String normalize(String name) {
+        name = name.trim();
+        if (name.length() > 1) {
+            char first = name.charAt(0);
+            if (first == '`' || first == '"' || first == '[') {
+                name = name.substring(1, name.length() - 1);
+            }
+        }
+        return name.toLowerCase();
+    }
+}
@@ -28,9 +28,19 @@ import com.github.pagehelper.JSqlParser;
 import com.github.pagehelper.page.PageMethod;
 import com.github.pagehelper.util.StringUtil;
 import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnalyticExpression;
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
 import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.IntervalExpression;
+import net.sf.jsqlparser.expression.JdbcNamedParameter;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.JsonAggregateFunction;
+import net.sf.jsqlparser.expression.JsonFunction;
+import net.sf.jsqlparser.expression.JsonKeyValuePair;
 import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.relational.ExistsExpression;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.parser.Token;
 import net.sf.jsqlparser.schema.Column;
@@ -38,6 +48,7 @@ import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * sql解析类，提供更智能的count查询sql
@@ -49,9 +60,14 @@ public class CountSqlParser {
     private static final Alias TABLE_ALIAS;
 
     //<editor-fold desc="聚合函数">
-    private final Set<String> skipFunctions  = Collections.synchronizedSet(new HashSet<String>());
-    private final Set<String> falseFunctions = Collections.synchronizedSet(new HashSet<String>());
-    private final JSqlParser  jSqlParser;
+    private final    JSqlParser          jSqlParser;
+    private          SqlIndex            sqlIndex;
+    private          CountJoinEliminator countJoinEliminator;
+    private          FastCountSqlParser  fastCountSqlParser;
+    /**
+     * 函数是否为聚合函数的判断结果，聚合函数变化时整体替换
+     */
+    private volatile FunctionCache       functionCache = new FunctionCache(AGGREGATE_FUNCTION_TRIE);
 
     /**
      * 聚合函数，以下列函数开头的都认为是聚合函数
@@ -136,6 +152,10 @@ public class CountSqlParser {
             //"VARIANCE_SAMP," +
             //"VARP," +
             "XMLAGG").split(",")));
+    /**
+     * 聚合函数前缀树，只读，修改聚合函数时重新创建
+     */
+    private static volatile FunctionTrie AGGREGATE_FUNCTION_TRIE = new FunctionTrie(AGGREGATE_FUNCTIONS);
     //</editor-fold>
 
     static {
@@ -151,8 +171,14 @@ public class CountSqlParser {
     public static void addAggregateFunctions(String functions) {
         if (StringUtil.isNotEmpty(functions)) {
             String[] funs = functions.split(",");
-            for (int i = 0; i < funs.length; i++) {
-                AGGREGATE_FUNCTIONS.add(funs[i].toUpperCase());
+            synchronized (AGGREGATE_FUNCTIONS) {
+                for (int i = 0; i < funs.length; i++) {
+                    String fun = funs[i].trim();
+                    if (fun.length() > 0) {
+                        AGGREGATE_FUNCTIONS.add(fun.toUpperCase());
+                    }
+                }
+                AGGREGATE_FUNCTION_TRIE = new FunctionTrie(AGGREGATE_FUNCTIONS);
             }
         }
     }
@@ -165,6 +191,33 @@ public class CountSqlParser {
         this.jSqlParser = jSqlParser;
     }
 
+    /**
+     * 设置构建期生成的 SQL 索引
+     *
+     * @param sqlIndex
+     */
+    public void setSqlIndex(SqlIndex sqlIndex) {
+        this.sqlIndex = sqlIndex;
+    }
+
+    /**
+     * 设置 count 查询中去掉多余 left join 的处理
+     *
+     * @param countJoinEliminator
+     */
+    public void setCountJoinEliminator(CountJoinEliminator countJoinEliminator) {
+        this.countJoinEliminator = countJoinEliminator;
+    }
+
+    /**
+     * 设置是否对简单查询跳过 JSqlParser 直接生成 count 查询
+     *
+     * @param fastPath
+     */
+    public void setFastPath(boolean fastPath) {
+        this.fastCountSqlParser = fastPath ? new FastCountSqlParser(this) : null;
+    }
+
     /**
      * 获取智能的countSql
      *
@@ -183,12 +236,47 @@ public class CountSqlParser {
      * @return
      */
     public String getSmartCountSql(String sql, String countColumn) {
+        return getSmartCountSql(sql, countColumn, keepOrderBy(), keepSubSelectOrderBy());
+    }
+
+    /**
+     * 获取智能的countSql，直接指定是否保留 order by，不再从 {@link PageMethod#getLocalPage()} 获取
+     *
+     * @param sql
+     * @param countColumn          列名，默认 0
+     * @param keepOrderBy          保留 order by
+     * @param keepSubSelectOrderBy 保留子查询 order by
+     * @return
+     */
+    public String getSmartCountSql(String sql, String countColumn, boolean keepOrderBy, boolean keepSubSelectOrderBy) {
         //解析SQL
         Statement stmt = null;
         //特殊sql不需要去掉order by时，使用注释前缀
-        if (sql.indexOf(KEEP_ORDERBY) >= 0 || keepOrderBy()) {
+        if (keepOrderBy || sql.indexOf(KEEP_ORDERBY) >= 0) {
             return getSimpleCountSql(sql, countColumn);
         }
+        //构建期预先生成的 count 查询
+        if (sqlIndex != null && !keepSubSelectOrderBy) {
+            String countSql = sqlIndex.getCountSql(sql, countColumn);
+            if (countSql != null) {
+                return countSql;
+            }
+        }
+        //折叠 in 参数列表后再解析
+        InListCollapser.Template template = InListCollapser.collapse(sql);
+        if (template != null) {
+            String countSql = template.expand(getSmartCountSql(template.getSql(), countColumn, false, keepSubSelectOrderBy));
+            if (countSql != null) {
+                return countSql;
+            }
+        }
+        //简单查询直接替换查询列，需要去掉 left join 时仍然使用 JSqlParser
+        if (fastCountSqlParser != null && countJoinEliminator == null && !keepSubSelectOrderBy) {
+            String countSql = fastCountSqlParser.getCountSql(sql, countColumn);
+            if (countSql != null) {
+                return countSql;
+            }
+        }
         try {
             stmt = jSqlParser.parse(sql);
         } catch (Throwable e) {
@@ -199,13 +287,13 @@ public class CountSqlParser {
         SelectBody selectBody = select.getSelectBody();
         try {
             //处理body-去order by
-            processSelectBody(selectBody);
+            processSelectBody(selectBody, keepSubSelectOrderBy);
         } catch (Exception e) {
             //当 sql 包含 group by 时，不去除 order by
             return getSimpleCountSql(sql, countColumn);
         }
         //处理with-去order by
-        processWithItemsList(select.getWithItemsList());
+        processWithItemsList(select.getWithItemsList(), keepSubSelectOrderBy);
         //处理为count查询
         sqlToCount(select, countColumn);
         String result = select.toString();
@@ -260,6 +348,10 @@ public class CountSqlParser {
         COUNT_ITEM.add(new SelectExpressionItem(new Column("count(" + name +")")));
         if (selectBody instanceof PlainSelect && isSimpleCount((PlainSelect) selectBody)) {
             ((PlainSelect) selectBody).setSelectItems(COUNT_ITEM);
+            //查询列已经去掉，只需要判断其他部分是否引用了关联表
+            if (countJoinEliminator != null) {
+                countJoinEliminator.eliminate((PlainSelect) selectBody);
+            }
         } else {
             PlainSelect plainSelect = new PlainSelect();
             SubSelect subSelect = new SubSelect();
@@ -291,30 +383,17 @@ public class CountSqlParser {
             return false;
         }
         for (SelectItem item : select.getSelectItems()) {
-            //select列中包含参数的时候不可以，否则会引起参数个数错误
-            if (item.toString().contains("?")) {
-                return false;
-            }
-            //如果查询列中包含函数，也不可以，函数可能会聚合列
             if (item instanceof SelectExpressionItem) {
                 Expression expression = ((SelectExpressionItem) item).getExpression();
+                //select列中包含参数的时候不可以，否则会引起参数个数错误
+                if (hasParameter(expression)) {
+                    return false;
+                }
+                //如果查询列中包含函数，也不可以，函数可能会聚合列
                 if (expression instanceof Function) {
                     String name = ((Function) expression).getName();
-                    if (name != null) {
-                        String NAME = name.toUpperCase();
-                        if(skipFunctions.contains(NAME)){
-                            //go on
-                        } else if(falseFunctions.contains(NAME)){
-                            return false;
-                        } else {
-                            for (String aggregateFunction : AGGREGATE_FUNCTIONS) {
-                                if (NAME.startsWith(aggregateFunction)) {
-                                    falseFunctions.add(NAME);
-                                    return false;
-                                }
-                            }
-                            skipFunctions.add(NAME);
-                        }
+                    if (name != null && isAggregateFunction(name)) {
+                        return false;
                     }
                 } else if (expression instanceof Parenthesis && ((SelectExpressionItem) item).getAlias() != null) {
                     //#555，当存在 (a+b) as c 时，c 如果出现了 order by 或者 having 中时，会找不到对应的列，
@@ -326,26 +405,237 @@ public class CountSqlParser {
         return true;
     }
 
+    /**
+     * 表达式中是否包含参数
+     *
+     * @param expression
+     * @return
+     */
+    protected boolean hasParameter(Expression expression) {
+        final boolean[] result = new boolean[1];
+        expression.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(JdbcParameter parameter) {
+                result[0] = true;
+            }
+
+            @Override
+            public void visit(JdbcNamedParameter parameter) {
+                result[0] = true;
+            }
+
+            @Override
+            public void visit(SubSelect subSelect) {
+                //子查询很少出现在查询列中，直接判断
+                if (subSelect.toString().contains("?")) {
+                    result[0] = true;
+                }
+            }
+
+            //下面的表达式中有 ExpressionVisitorAdapter 不会访问的部分
+
+            @Override
+            public void visit(IntervalExpression expression) {
+                if (expression.getExpression() != null) {
+                    expression.getExpression().accept(this);
+                } else if (expression.getParameter() != null && expression.getParameter().indexOf('?') >= 0) {
+                    //interval ? day
+                    result[0] = true;
+                }
+            }
+
+            @Override
+            public void visit(Function function) {
+                super.visit(function);
+                //substring(a from ?)
+                if (function.getNamedParameters() != null) {
+                    visitAll(function.getNamedParameters().getExpressions());
+                }
+                if (function.getAttribute() != null) {
+                    function.getAttribute().accept(this);
+                }
+            }
+
+            @Override
+            public void visit(AnalyticExpression expression) {
+                super.visit(expression);
+                //over (partition by ?)
+                if (expression.getPartitionExpressionList() != null) {
+                    visitAll(expression.getPartitionExpressionList().getExpressions());
+                }
+                if (expression.getFilterExpression() != null) {
+                    expression.getFilterExpression().accept(this);
+                }
+                visitOrderBy(expression.getFuncOrderBy());
+            }
+
+            @Override
+            public void visit(JsonFunction expression) {
+                super.visit(expression);
+                //json_object(key 'a' value ?)
+                for (JsonKeyValuePair pair : expression.getKeyValuePairs()) {
+                    visitValue(pair.getValue());
+                }
+            }
+
+            @Override
+            public void visit(JsonAggregateFunction expression) {
+                super.visit(expression);
+                visitValue(expression.getValue());
+                visitOrderBy(expression.getExpressionOrderByElements());
+            }
+
+            private void visitAll(List<Expression> expressions) {
+                if (expressions != null) {
+                    for (Expression item : expressions) {
+                        item.accept(this);
+                    }
+                }
+            }
+
+            private void visitOrderBy(List<OrderByElement> orderByElements) {
+                if (orderByElements != null) {
+                    for (OrderByElement orderByElement : orderByElements) {
+                        orderByElement.getExpression().accept(this);
+                    }
+                }
+            }
+
+            private void visitValue(Object value) {
+                if (value instanceof Expression) {
+                    ((Expression) value).accept(this);
+                } else if (value != null && value.toString().indexOf('?') >= 0) {
+                    result[0] = true;
+                }
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * 是否为聚合函数，判断结果会缓存
+     *
+     * @param name 函数名
+     * @return
+     */
+    protected boolean isAggregateFunction(String name) {
+        FunctionCache cache = this.functionCache;
+        if (cache.trie != AGGREGATE_FUNCTION_TRIE) {
+            cache = new FunctionCache(AGGREGATE_FUNCTION_TRIE);
+            this.functionCache = cache;
+        }
+        Boolean aggregate = cache.results.get(name);
+        if (aggregate == null) {
+            aggregate = cache.trie.matchPrefix(name);
+            cache.results.put(name, aggregate);
+        }
+        return aggregate;
+    }
+
+    /**
+     * 函数判断结果缓存，和生成结果的前缀树绑定
+     */
+    private static class FunctionCache {
+        private final FunctionTrie                        trie;
+        private final ConcurrentHashMap<String, Boolean> results = new ConcurrentHashMap<String, Boolean>();
+
+        FunctionCache(FunctionTrie trie) {
+            this.trie = trie;
+        }
+    }
+
+    /**
+     * 不区分大小写的函数名前缀树
+     */
+    private static class FunctionTrie {
+        private final Node root = new Node();
+
+        FunctionTrie(Collection<String> prefixes) {
+            for (String prefix : prefixes) {
+                Node node = root;
+                for (int i = 0; i < prefix.length(); i++) {
+                    node = node.child(Character.toUpperCase(prefix.charAt(i)), true);
+                }
+                node.terminal = true;
+            }
+        }
+
+        /**
+         * 函数名是否以任意一个前缀开头
+         */
+        boolean matchPrefix(String name) {
+            Node node = root;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.child(Character.toUpperCase(name.charAt(i)), false);
+                if (node == null) {
+                    return false;
+                }
+                if (node.terminal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static class Node {
+            private char[]  keys     = new char[0];
+            private Node[]  children = new Node[0];
+            private boolean terminal;
+
+            Node child(char c, boolean create) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == c) {
+                        return children[i];
+                    }
+                }
+                if (!create) {
+                    return null;
+                }
+                Node node = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = c;
+                children[children.length - 1] = node;
+                return node;
+            }
+        }
+    }
+
     /**
      * 处理selectBody去除Order by
      *
      * @param selectBody
      */
     public void processSelectBody(SelectBody selectBody) {
+        processSelectBody(selectBody, keepSubSelectOrderBy());
+    }
+
+    /**
+     * 处理selectBody去除Order by
+     *
+     * @param selectBody
+     * @param keepSubSelectOrderBy 保留子查询 order by
+     */
+    public void processSelectBody(SelectBody selectBody, boolean keepSubSelectOrderBy) {
         if (selectBody != null) {
             if (selectBody instanceof PlainSelect) {
-                processPlainSelect((PlainSelect) selectBody);
+                processPlainSelect((PlainSelect) selectBody, keepSubSelectOrderBy);
             } else if (selectBody instanceof WithItem) {
                 WithItem withItem = (WithItem) selectBody;
-                if (withItem.getSubSelect() != null && !keepSubSelectOrderBy()) {
-                    processSelectBody(withItem.getSubSelect().getSelectBody());
+                if (withItem.getSubSelect() != null && !keepSubSelectOrderBy) {
+                    processSubSelectBody(withItem.getSubSelect().getSelectBody());
                 }
             } else {
                 SetOperationList operationList = (SetOperationList) selectBody;
                 if (operationList.getSelects() != null && operationList.getSelects().size() > 0) {
                     List<SelectBody> plainSelects = operationList.getSelects();
                     for (SelectBody plainSelect : plainSelects) {
-                        processSelectBody(plainSelect);
+                        //分支中有 limit 时排序会影响结果
+                        if (!keepSubSelectOrderBy && isLimited(plainSelect)) {
+                            processLimitedSelectBody(plainSelect);
+                        } else {
+                            processSelectBody(plainSelect, keepSubSelectOrderBy);
+                        }
                     }
                 }
                 if (!orderByHashParameters(operationList.getOrderByElements())) {
@@ -361,20 +651,146 @@ public class CountSqlParser {
      * @param plainSelect
      */
     public void processPlainSelect(PlainSelect plainSelect) {
+        processPlainSelect(plainSelect, keepSubSelectOrderBy());
+    }
+
+    /**
+     * 处理PlainSelect类型的selectBody
+     *
+     * @param plainSelect
+     * @param keepSubSelectOrderBy 保留子查询 order by
+     */
+    public void processPlainSelect(PlainSelect plainSelect, boolean keepSubSelectOrderBy) {
         if (!orderByHashParameters(plainSelect.getOrderByElements())) {
             plainSelect.setOrderByElements(null);
         }
         if (plainSelect.getFromItem() != null) {
-            processFromItem(plainSelect.getFromItem());
+            processFromItem(plainSelect.getFromItem(), keepSubSelectOrderBy);
         }
         if (plainSelect.getJoins() != null && plainSelect.getJoins().size() > 0) {
             List<Join> joins = plainSelect.getJoins();
             for (Join join : joins) {
                 if (join.getRightItem() != null) {
-                    processFromItem(join.getRightItem());
+                    processFromItem(join.getRightItem(), keepSubSelectOrderBy);
+                }
+            }
+        }
+        if (!keepSubSelectOrderBy) {
+            processExpressions(plainSelect);
+        }
+    }
+
+    /**
+     * 处理查询列、where、join on 和 having 中的子查询（IN、EXISTS、标量子查询等）
+     *
+     * @param plainSelect
+     */
+    protected void processExpressions(PlainSelect plainSelect) {
+        ExpressionVisitorAdapter visitor = new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(SubSelect subSelect) {
+                processWithItemsList(subSelect.getWithItemsList(), false);
+                processSubSelectBody(subSelect.getSelectBody());
+            }
+
+            @Override
+            public void visit(ExistsExpression expression) {
+                removeDistinct(expression.getRightExpression());
+                super.visit(expression);
+            }
+
+            @Override
+            public void visit(InExpression expression) {
+                removeDistinct(expression.getRightExpression());
+                removeDistinct(expression.getRightItemsList());
+                super.visit(expression);
+            }
+        };
+        if (plainSelect.getSelectItems() != null) {
+            for (SelectItem selectItem : plainSelect.getSelectItems()) {
+                if (selectItem instanceof SelectExpressionItem) {
+                    ((SelectExpressionItem) selectItem).getExpression().accept(visitor);
+                }
+            }
+        }
+        if (plainSelect.getWhere() != null) {
+            plainSelect.getWhere().accept(visitor);
+        }
+        if (plainSelect.getJoins() != null) {
+            for (Join join : plainSelect.getJoins()) {
+                if (join.getOnExpressions() != null) {
+                    for (Expression on : join.getOnExpressions()) {
+                        on.accept(visitor);
+                    }
                 }
             }
         }
+        if (plainSelect.getHaving() != null) {
+            plainSelect.getHaving().accept(visitor);
+        }
+    }
+
+    /**
+     * EXISTS 和 IN 的子查询中，distinct 不影响结果，包含 limit、offset 等限制时 distinct 会影响取到的行，需要保留
+     *
+     * @param item
+     */
+    private void removeDistinct(Object item) {
+        if (item instanceof SubSelect && ((SubSelect) item).getSelectBody() instanceof PlainSelect
+                && !isLimited(((SubSelect) item).getSelectBody())) {
+            PlainSelect plainSelect = (PlainSelect) ((SubSelect) item).getSelectBody();
+            Distinct distinct = plainSelect.getDistinct();
+            if (distinct != null && (distinct.getOnSelectItems() == null || distinct.getOnSelectItems().isEmpty())) {
+                plainSelect.setDistinct(null);
+            }
+        }
+    }
+
+    /**
+     * 处理子查询，包含 limit、top 等限制时保留当前层的 order by
+     *
+     * @param selectBody
+     */
+    protected void processSubSelectBody(SelectBody selectBody) {
+        if (isLimited(selectBody)) {
+            processLimitedSelectBody(selectBody);
+        } else {
+            processSelectBody(selectBody, false);
+        }
+    }
+
+    private void processLimitedSelectBody(SelectBody selectBody) {
+        if (selectBody instanceof PlainSelect) {
+            PlainSelect plainSelect = (PlainSelect) selectBody;
+            List<OrderByElement> orderByElements = plainSelect.getOrderByElements();
+            processPlainSelect(plainSelect, false);
+            plainSelect.setOrderByElements(orderByElements);
+        } else if (selectBody instanceof SetOperationList) {
+            SetOperationList operationList = (SetOperationList) selectBody;
+            List<OrderByElement> orderByElements = operationList.getOrderByElements();
+            processSelectBody(operationList, false);
+            operationList.setOrderByElements(orderByElements);
+        } else {
+            processSelectBody(selectBody, false);
+        }
+    }
+
+    /**
+     * 是否包含 limit、offset、fetch、top，此时 order by 会影响结果
+     *
+     * @param selectBody
+     * @return
+     */
+    protected boolean isLimited(SelectBody selectBody) {
+        if (selectBody instanceof PlainSelect) {
+            PlainSelect plainSelect = (PlainSelect) selectBody;
+            return plainSelect.getLimit() != null || plainSelect.getOffset() != null
+                    || plainSelect.getFetch() != null || plainSelect.getTop() != null;
+        } else if (selectBody instanceof SetOperationList) {
+            SetOperationList operationList = (SetOperationList) selectBody;
+            return operationList.getLimit() != null || operationList.getOffset() != null || operationList.getFetch() != null;
+        }
+        return false;
     }
 
     /**
@@ -383,10 +799,20 @@ public class CountSqlParser {
      * @param withItemsList
      */
     public void processWithItemsList(List<WithItem> withItemsList) {
-        if (withItemsList != null && withItemsList.size() > 0) {
+        processWithItemsList(withItemsList, keepSubSelectOrderBy());
+    }
+
+    /**
+     * 处理WithItem
+     *
+     * @param withItemsList
+     * @param keepSubSelectOrderBy 保留子查询 order by
+     */
+    public void processWithItemsList(List<WithItem> withItemsList, boolean keepSubSelectOrderBy) {
+        if (withItemsList != null && withItemsList.size() > 0 && !keepSubSelectOrderBy) {
             for (WithItem item : withItemsList) {
-                if (item.getSubSelect() != null && !keepSubSelectOrderBy()) {
-                    processSelectBody(item.getSubSelect().getSelectBody());
+                if (item.getSubSelect() != null) {
+                    processSubSelectBody(item.getSubSelect().getSelectBody());
                 }
             }
         }
@@ -398,22 +824,32 @@ public class CountSqlParser {
      * @param fromItem
      */
     public void processFromItem(FromItem fromItem) {
+        processFromItem(fromItem, keepSubSelectOrderBy());
+    }
+
+    /**
+     * 处理子查询
+     *
+     * @param fromItem
+     * @param keepSubSelectOrderBy 保留子查询 order by
+     */
+    public void processFromItem(FromItem fromItem, boolean keepSubSelectOrderBy) {
         if (fromItem instanceof SubJoin) {
             SubJoin subJoin = (SubJoin) fromItem;
             if (subJoin.getJoinList() != null && subJoin.getJoinList().size() > 0) {
                 for (Join join : subJoin.getJoinList()) {
                     if (join.getRightItem() != null) {
-                        processFromItem(join.getRightItem());
+                        processFromItem(join.getRightItem(), keepSubSelectOrderBy);
                     }
                 }
             }
             if (subJoin.getLeft() != null) {
-                processFromItem(subJoin.getLeft());
+                processFromItem(subJoin.getLeft(), keepSubSelectOrderBy);
             }
         } else if (fromItem instanceof SubSelect) {
             SubSelect subSelect = (SubSelect) fromItem;
-            if (subSelect.getSelectBody() != null && !keepSubSelectOrderBy()) {
-                processSelectBody(subSelect.getSelectBody());
+            if (subSelect.getSelectBody() != null && !keepSubSelectOrderBy) {
+                processSubSelectBody(subSelect.getSelectBody());
             }
         } else if (fromItem instanceof ValuesList) {
 
@@ -421,8 +857,8 @@ public class CountSqlParser {
             LateralSubSelect lateralSubSelect = (LateralSubSelect) fromItem;
             if (lateralSubSelect.getSubSelect() != null) {
                 SubSelect subSelect = lateralSubSelect.getSubSelect();
-                if (subSelect.getSelectBody() != null && !keepSubSelectOrderBy()) {
-                    processSelectBody(subSelect.getSelectBody());
+                if (subSelect.getSelectBody() != null && !keepSubSelectOrderBy) {
+                    processSubSelectBody(subSelect.getSelectBody());
                 }
             }
         }
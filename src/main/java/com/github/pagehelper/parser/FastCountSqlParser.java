@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 不使用 JSqlParser 的 count 查询快速生成，只处理简单的 select：
+ * <pre>
+ * select 查询列 from ...（where、join 等） [order by ...]
+ * </pre>
+ * 查询列替换为 count(0)，去掉最后的 order by，其余部分原样保留。
+ * 包含注释、参数化的查询列或排序、聚合函数、distinct、group by、union、子查询中的 order by 等情况时返回 null，
+ * 由 {@link CountSqlParser} 继续使用 JSqlParser 处理
+ *
+ * @author liuzh
+ */
+public class FastCountSqlParser {
+    /**
+     * 出现在最外层时无法快速处理的关键字
+     */
+    private static final Set<String> UNSUPPORTED_KEYWORDS = new HashSet<String>(Arrays.asList(
+            "WITH", "DISTINCT", "DISTINCTROW", "UNIQUE", "ALL", "TOP", "INTO", "GROUP", "HAVING",
+            "UNION", "INTERSECT", "EXCEPT", "MINUS", "LIMIT", "OFFSET", "FETCH", "FOR", "WINDOW",
+            "CONNECT", "START", "QUALIFY", "PIVOT", "UNPIVOT", "MODEL", "SIBLINGS", "LOCK", "PROCEDURE"));
+
+    private final CountSqlParser countSqlParser;
+
+    public FastCountSqlParser(CountSqlParser countSqlParser) {
+        this.countSqlParser = countSqlParser;
+    }
+
+    /**
+     * 生成 count 查询
+     *
+     * @param sql         原查询
+     * @param countColumn count 列
+     * @return 无法处理时返回 null
+     */
+    public String getCountSql(String sql, String countColumn) {
+        int length = sql.length();
+        int depth = 0;
+        int selectEnd = -1;
+        int fromStart = -1;
+        int orderStart = -1;
+        boolean selectItemParameter = false;
+        boolean orderByParameter = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`' || c == '[') {
+                char end = c == '[' ? ']' : c;
+                int close = sql.indexOf(end, i + 1);
+                if (close < 0) {
+                    return null;
+                }
+                i = close + 1;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-'
+                    || c == '/' && i + 1 < length && sql.charAt(i + 1) == '*'
+                    || c == ';' || c == '{' || c == '#') {
+                //注释、多条语句、转义语法
+                return null;
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                if (--depth < 0) {
+                    return null;
+                }
+                i++;
+            } else if (c == '?') {
+                if (fromStart < 0) {
+                    selectItemParameter = true;
+                } else if (orderStart >= 0) {
+                    orderByParameter = true;
+                }
+                i++;
+            } else if (isWordChar(c)) {
+                int start = i;
+                while (i < length && isWordChar(sql.charAt(i))) {
+                    i++;
+                }
+                String word = sql.substring(start, i).toUpperCase();
+                if (selectEnd < 0) {
+                    //第一个单词必须是 select
+                    if (!"SELECT".equals(word)) {
+                        return null;
+                    }
+                    selectEnd = i;
+                } else if ("ORDER".equals(word)) {
+                    //子查询中的 order by 交给 JSqlParser 去掉
+                    if (depth > 0 || fromStart < 0 || orderStart >= 0) {
+                        return null;
+                    }
+                    orderStart = start;
+                } else if (depth == 0) {
+                    if (UNSUPPORTED_KEYWORDS.contains(word) || (word.startsWith("SQL_") && fromStart < 0)) {
+                        return null;
+                    }
+                    if (fromStart < 0) {
+                        if ("FROM".equals(word)) {
+                            fromStart = start;
+                        } else if (isFunction(sql, i) && countSqlParser.isAggregateFunction(word)) {
+                            return null;
+                        }
+                    }
+                } else if (fromStart < 0 && isFunction(sql, i) && countSqlParser.isAggregateFunction(word)) {
+                    //查询列中嵌套的聚合函数，例如 coalesce(max(id), 0)
+                    return null;
+                }
+            } else {
+                i++;
+            }
+        }
+        if (depth != 0 || fromStart < 0 || selectItemParameter || orderByParameter) {
+            return null;
+        }
+        //#555，(a+b) as c 这类查询列的别名可能被引用
+        String selectItems = sql.substring(selectEnd, fromStart);
+        if (selectItems.trim().startsWith("(") || selectItems.contains(",(") || selectItems.contains(", (")) {
+            return null;
+        }
+        String from = orderStart >= 0 ? sql.substring(fromStart, orderStart) : sql.substring(fromStart);
+        StringBuilder countSql = new StringBuilder(from.length() + 20);
+        countSql.append("SELECT count(").append(countColumn).append(") ").append(from.trim());
+        return countSql.toString();
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+    }
+
+    /**
+     * 单词后面是否是左括号
+     */
+    private static boolean isFunction(String sql, int index) {
+        while (index < sql.length() && Character.isWhitespace(sql.charAt(index))) {
+            index++;
+        }
+        return index < sql.length() && sql.charAt(index) == '(';
+    }
+}
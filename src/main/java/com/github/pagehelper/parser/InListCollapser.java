@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+/**
+ * 解析前把 <code>IN (?, ?, ..., ?)</code> 折叠为 <code>IN (?)</code>，改写完成后再按原来的数量展开
+ * <p>
+ * foreach 生成的 in 查询参数数量不同时 sql 也不同，折叠后解析的 AST 更小，并且不同数量的 sql 可以共用同一个改写缓存。
+ * 改写不会调整参数的顺序，所以按 ? 出现的顺序展开后，参数仍然和 ParameterMapping 一一对应
+ *
+ * @author liuzh
+ */
+public class InListCollapser {
+    /**
+     * 折叠后的 sql 模板
+     */
+    public static class Template {
+        private final String sql;
+        //折叠后 ? 的总数
+        private final int    count;
+        //被折叠的 ? 的序号
+        private final int[]  indexes;
+        //对应的原始数量
+        private final int[]  sizes;
+
+        Template(String sql, int count, int[] indexes, int[] sizes) {
+            this.sql = sql;
+            this.count = count;
+            this.indexes = indexes;
+            this.sizes = sizes;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * 展开改写后的 sql
+         *
+         * @param rewriteSql 由 {@link #getSql()} 改写后的 sql
+         * @return ? 的数量和模板不一致时返回 null
+         */
+        public String expand(String rewriteSql) {
+            int total = 0;
+            for (int size : sizes) {
+                total += size * 3;
+            }
+            StringBuilder builder = new StringBuilder(rewriteSql.length() + total);
+            int length = rewriteSql.length();
+            int ordinal = 0;
+            int collapsed = 0;
+            int last = 0;
+            int i = 0;
+            while (i < length) {
+                int skip = skipQuoteOrComment(rewriteSql, i);
+                if (skip < 0) {
+                    return null;
+                } else if (skip > i) {
+                    i = skip;
+                } else if (rewriteSql.charAt(i) == '?') {
+                    builder.append(rewriteSql, last, i);
+                    if (collapsed < indexes.length && indexes[collapsed] == ordinal) {
+                        for (int j = 0; j < sizes[collapsed]; j++) {
+                            builder.append(j == 0 ? "?" : ", ?");
+                        }
+                        collapsed++;
+                    } else {
+                        builder.append('?');
+                    }
+                    ordinal++;
+                    last = ++i;
+                } else {
+                    i++;
+                }
+            }
+            if (ordinal != count) {
+                return null;
+            }
+            builder.append(rewriteSql, last, length);
+            return builder.toString();
+        }
+    }
+
+    /**
+     * 折叠 in 参数列表
+     *
+     * @param sql
+     * @return 没有需要折叠的参数列表时返回 null
+     */
+    public static Template collapse(String sql) {
+        if (sql.indexOf('?') < 0) {
+            return null;
+        }
+        int length = sql.length();
+        StringBuilder builder = null;
+        int[] indexes = new int[4];
+        int[] sizes = new int[4];
+        int collapsed = 0;
+        int ordinal = 0;
+        int last = 0;
+        int i = 0;
+        while (i < length) {
+            int skip = skipQuoteOrComment(sql, i);
+            if (skip < 0) {
+                return null;
+            } else if (skip > i) {
+                i = skip;
+                continue;
+            }
+            char c = sql.charAt(i);
+            if (c == '?') {
+                ordinal++;
+                i++;
+            } else if ((c == 'i' || c == 'I') && i + 1 < length && (sql.charAt(i + 1) == 'n' || sql.charAt(i + 1) == 'N')
+                    && (i == 0 || !isWordChar(sql.charAt(i - 1))) && (i + 2 == length || !isWordChar(sql.charAt(i + 2)))) {
+                //in 后面只包含 ? 的参数列表
+                int open = i + 2;
+                while (open < length && Character.isWhitespace(sql.charAt(open))) {
+                    open++;
+                }
+                int size = 0;
+                int close = -1;
+                if (open < length && sql.charAt(open) == '(') {
+                    boolean expectParam = true;
+                    for (int j = open + 1; j < length; j++) {
+                        char p = sql.charAt(j);
+                        if (Character.isWhitespace(p)) {
+                            continue;
+                        }
+                        if (expectParam && p == '?') {
+                            size++;
+                            expectParam = false;
+                        } else if (!expectParam && p == ',') {
+                            expectParam = true;
+                        } else if (!expectParam && p == ')') {
+                            close = j;
+                            break;
+                        } else {
+                            break;
+                        }
+                    }
+                }
+                if (close > 0 && size > 1) {
+                    if (builder == null) {
+                        builder = new StringBuilder(length);
+                    }
+                    if (collapsed == indexes.length) {
+                        indexes = copyOf(indexes, collapsed * 2);
+                        sizes = copyOf(sizes, collapsed * 2);
+                    }
+                    indexes[collapsed] = ordinal;
+                    sizes[collapsed] = size;
+                    collapsed++;
+                    builder.append(sql, last, open).append("(?)");
+                    ordinal++;
+                    last = close + 1;
+                    i = last;
+                } else {
+                    i += 2;
+                }
+            } else {
+                i++;
+            }
+        }
+        if (builder == null) {
+            return null;
+        }
+        builder.append(sql, last, length);
+        return new Template(builder.toString(), ordinal, copyOf(indexes, collapsed), copyOf(sizes, collapsed));
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * 跳过引号和注释
+     *
+     * @return 不是引号或注释时返回 index，没有结束时返回 -1
+     */
+    private static int skipQuoteOrComment(String sql, int index) {
+        char c = sql.charAt(index);
+        int end;
+        if (c == '\'' || c == '"' || c == '`') {
+            end = sql.indexOf(c, index + 1);
+            return end < 0 ? -1 : end + 1;
+        } else if (c == '-' && index + 1 < sql.length() && sql.charAt(index + 1) == '-') {
+            end = sql.indexOf('\n', index);
+            return end < 0 ? sql.length() : end + 1;
+        } else if (c == '/' && index + 1 < sql.length() && sql.charAt(index + 1) == '*') {
+            end = sql.indexOf("*/", index + 2);
+            return end < 0 ? -1 : end + 2;
+        }
+        return index;
+    }
+}
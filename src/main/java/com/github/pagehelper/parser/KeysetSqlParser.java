@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+import com.github.pagehelper.JSqlParser;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 将深分页转换为先定位边界 key 再按 key 查询（seek）的 sql：
+ * <pre>
+ * SELECT * FROM user WHERE (...) AND id &gt;= (SELECT id FROM user WHERE (...) ORDER BY id LIMIT 1 OFFSET ?) ORDER BY id LIMIT ?
+ * </pre>
+ * 子查询只读取排序列，可以只使用索引完成 offset 的跳过，外层查询通过索引定位后只读取一页数据。
+ * <p>
+ * 只处理简单的单表查询，并且只按一个唯一列（keysetColumns 中配置的列）排序，其他情况返回 {@link KeysetSql#UNSUPPORTED}。
+ * 关联查询中一个 key 可能对应多行，按 key 定位会跳过或重复数据，因此不支持
+ *
+ * @author liuzh
+ */
+public class KeysetSqlParser {
+    private final JSqlParser  jSqlParser;
+    private final Set<String> keyColumns = new HashSet<String>();
+
+    /**
+     * @param jSqlParser
+     * @param keyColumns 唯一并且有索引的列名，多个用逗号隔开
+     */
+    public KeysetSqlParser(JSqlParser jSqlParser, String keyColumns) {
+        this.jSqlParser = jSqlParser;
+        for (String column : keyColumns.split(",")) {
+            column = unquote(column.trim());
+            if (column.length() > 0) {
+                this.keyColumns.add(column.toLowerCase());
+            }
+        }
+    }
+
+    /**
+     * 转换为 keyset 分页 sql
+     *
+     * @param sql 原 sql，包含排序
+     * @return
+     */
+    public KeysetSql parse(String sql) {
+        try {
+            Statement stmt = jSqlParser.parse(sql);
+            if (!(stmt instanceof Select)) {
+                return KeysetSql.UNSUPPORTED;
+            }
+            Select select = (Select) stmt;
+            if (select.getWithItemsList() != null && !select.getWithItemsList().isEmpty()
+                    || !(select.getSelectBody() instanceof PlainSelect)) {
+                return KeysetSql.UNSUPPORTED;
+            }
+            PlainSelect plainSelect = (PlainSelect) select.getSelectBody();
+            Column column = getKeyColumn(plainSelect);
+            if (column == null) {
+                return KeysetSql.UNSUPPORTED;
+            }
+            OrderByElement orderBy = plainSelect.getOrderByElements().get(0);
+            //计算各部分的参数个数
+            StringBuilder selectItems = new StringBuilder();
+            for (SelectItem selectItem : plainSelect.getSelectItems()) {
+                selectItems.append(selectItem).append(',');
+            }
+            StringBuilder from = new StringBuilder().append(plainSelect.getFromItem());
+            Expression where = plainSelect.getWhere();
+            int selectParameterCount = countParameter(selectItems);
+            int fromParameterCount = countParameter(from);
+            int whereParameterCount = where != null ? countParameter(where.toString()) : 0;
+            int parameterCount = countParameter(plainSelect.toString());
+            if (selectParameterCount + fromParameterCount + whereParameterCount != parameterCount) {
+                return KeysetSql.UNSUPPORTED;
+            }
+            //只查询排序列的子查询
+            StringBuilder subSelect = new StringBuilder("SELECT ").append(column).append(" FROM ").append(from);
+            if (where != null) {
+                subSelect.append(" WHERE ").append(where);
+            }
+            subSelect.append(" ORDER BY ").append(orderBy).append(" LIMIT 1 OFFSET ?");
+            Expression seek = CCJSqlParserUtil.parseCondExpression(
+                    column + (orderBy.isAsc() ? " >= (" : " <= (") + subSelect + ")");
+            plainSelect.setWhere(where != null ? new AndExpression(new Parenthesis(where), seek) : seek);
+            return new KeysetSql(select.toString() + " LIMIT ?", parameterCount,
+                    selectParameterCount, selectParameterCount + fromParameterCount + whereParameterCount);
+        } catch (Throwable e) {
+            return KeysetSql.UNSUPPORTED;
+        }
+    }
+
+    /**
+     * 只按一个配置的唯一列排序时返回该列
+     *
+     * @param plainSelect
+     * @return
+     */
+    protected Column getKeyColumn(PlainSelect plainSelect) {
+        if (plainSelect.getFromItem() == null
+                || (plainSelect.getJoins() != null && !plainSelect.getJoins().isEmpty())
+                || plainSelect.getDistinct() != null
+                || plainSelect.getGroupBy() != null
+                || plainSelect.getHaving() != null
+                || plainSelect.getLimit() != null
+                || plainSelect.getOffset() != null
+                || plainSelect.getFetch() != null
+                || plainSelect.getTop() != null
+                || plainSelect.getIntoTables() != null
+                || plainSelect.isForUpdate()) {
+            return null;
+        }
+        List<OrderByElement> orderByElements = plainSelect.getOrderByElements();
+        if (orderByElements == null || orderByElements.size() != 1) {
+            return null;
+        }
+        OrderByElement orderBy = orderByElements.get(0);
+        if (orderBy.getNullOrdering() != null || !(orderBy.getExpression() instanceof Column)) {
+            return null;
+        }
+        Column column = (Column) orderBy.getExpression();
+        return keyColumns.contains(unquote(column.getColumnName()).toLowerCase()) ? column : null;
+    }
+
+    private static String unquote(String name) {
+        if (name.length() > 1) {
+            char first = name.charAt(0);
+            if (first == '`' || first == '"' || first == '[') {
+                return name.substring(1, name.length() - 1);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * 计算引号之外的参数个数
+     *
+     * @param sql
+     * @return
+     */
+    private static int countParameter(CharSequence sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * keyset 分页 sql，参数顺序为：原查询中 where 及之前的参数，子查询中 from 到 where 的参数（原参数中 [fromIndex, whereEndIndex) 部分），
+     * offset，原查询中剩余的参数，limit
+     */
+    public static class KeysetSql {
+        public static final KeysetSql UNSUPPORTED = new KeysetSql(null, 0, 0, 0);
+
+        private final String sql;
+        private final int    parameterCount;
+        private final int    fromIndex;
+        private final int    whereEndIndex;
+
+        public KeysetSql(String sql, int parameterCount, int fromIndex, int whereEndIndex) {
+            this.sql = sql;
+            this.parameterCount = parameterCount;
+            this.fromIndex = fromIndex;
+            this.whereEndIndex = whereEndIndex;
+        }
+
+        public boolean isSupported() {
+            return sql != null;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return 原 sql 中的参数个数
+         */
+        public int getParameterCount() {
+            return parameterCount;
+        }
+
+        public int getFromIndex() {
+            return fromIndex;
+        }
+
+        public int getWhereEndIndex() {
+            return whereEndIndex;
+        }
+    }
+}
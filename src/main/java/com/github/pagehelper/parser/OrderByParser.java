@@ -26,7 +26,6 @@ package com.github.pagehelper.parser;
 
 import com.github.pagehelper.JSqlParser;
 import com.github.pagehelper.PageException;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.*;
 import org.apache.ibatis.logging.Log;
@@ -52,6 +51,14 @@ public class OrderByParser {
      * @return
      */
     public static String converToOrderBySql(String sql, String orderBy, JSqlParser jSqlParser) {
+        //折叠 in 参数列表后再解析
+        InListCollapser.Template template = InListCollapser.collapse(sql);
+        if (template != null) {
+            String orderBySql = template.expand(converToOrderBySql(template.getSql(), orderBy, jSqlParser));
+            if (orderBySql != null) {
+                return orderBySql;
+            }
+        }
         //解析SQL
         Statement stmt = null;
         try {
@@ -83,6 +90,39 @@ public class OrderByParser {
         return converToOrderBySql(sql, orderBy, JSqlParser.DEFAULT);
     }
 
+    /**
+     * 直接在解析后的查询上替换最外层的 order by，和其他改写共用一次解析
+     *
+     * @param select
+     * @param orderBy
+     * @param jSqlParser
+     */
+    public static void replaceOrderBy(Select select, String orderBy, JSqlParser jSqlParser) {
+        SelectBody selectBody = select.getSelectBody();
+        if (!(selectBody instanceof PlainSelect) && !(selectBody instanceof SetOperationList)) {
+            throw new PageException("不支持替换该SQL的order by!");
+        }
+        //union 最后的 order by 属于整个查询
+        List<OrderByElement> orderByElements = selectBody instanceof SetOperationList ?
+                ((SetOperationList) selectBody).getOrderByElements() : extraOrderBy(selectBody);
+        if (PlainSelect.orderByToString(orderByElements).indexOf('?') != -1) {
+            throw new PageException("原SQL中的order by包含参数，因此不能使用OrderBy插件进行修改!");
+        }
+        //只解析排序部分
+        Statement stmt;
+        try {
+            stmt = jSqlParser.parse("SELECT 1 FROM DUAL ORDER BY " + orderBy);
+        } catch (Throwable e) {
+            throw new PageException("无法解析 order by [" + orderBy + "]", e);
+        }
+        List<OrderByElement> newOrderByElements = ((PlainSelect) ((Select) stmt).getSelectBody()).getOrderByElements();
+        if (selectBody instanceof SetOperationList) {
+            ((SetOperationList) selectBody).setOrderByElements(newOrderByElements);
+        } else {
+            ((PlainSelect) selectBody).setOrderByElements(newOrderByElements);
+        }
+    }
+
     /**
      * extra order by and set default orderby to null
      *
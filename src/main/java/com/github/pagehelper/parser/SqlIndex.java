@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+import com.github.pagehelper.PageException;
+import com.github.pagehelper.util.StringUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 构建期预先生成的 SQL 索引，运行时优先从这里获取 count 和 sqlserver 分页 sql，命中时不再解析 SQL
+ * <p>
+ * 索引文件由 {@link SqlIndexGenerator} 生成，默认位置为 {@link #DEFAULT_LOCATION}，classpath 中存在多个时会合并
+ *
+ * @author liuzh
+ */
+public class SqlIndex {
+    /**
+     * 默认索引位置
+     */
+    public static final  String                 DEFAULT_LOCATION = "META-INF/pagehelper/sql-index.properties";
+    /**
+     * count 查询前缀
+     */
+    public static final  String                 COUNT_PREFIX     = "count:";
+    /**
+     * sqlserver 分页模板前缀
+     */
+    public static final  String                 SQLSERVER_PREFIX = "sqlserver:";
+    /**
+     * 生成 count 查询时使用的列
+     */
+    public static final  String                 COUNT_COLUMN     = "countColumn";
+    private static final Object                 NOT_EXISTS       = new Object();
+    private static final Map<String, Object>    INDEX_MAP        = new ConcurrentHashMap<String, Object>();
+    private final        Map<String, String>    index;
+    private final        String                 countColumn;
+
+    public SqlIndex(Properties properties) {
+        this.index = new HashMap<String, String>(properties.size() * 4 / 3 + 1);
+        for (String name : properties.stringPropertyNames()) {
+            this.index.put(name, properties.getProperty(name));
+        }
+        String countColumn = properties.getProperty(COUNT_COLUMN);
+        this.countColumn = StringUtil.isNotEmpty(countColumn) ? countColumn : "0";
+    }
+
+    /**
+     * 加载 classpath 中的索引，不存在时返回 null，同一个位置只会加载一次
+     *
+     * @param location 索引位置
+     * @return
+     */
+    public static SqlIndex load(String location) {
+        Object sqlIndex = INDEX_MAP.get(location);
+        if (sqlIndex == null) {
+            sqlIndex = read(location);
+            INDEX_MAP.put(location, sqlIndex != null ? sqlIndex : NOT_EXISTS);
+        }
+        return sqlIndex instanceof SqlIndex ? (SqlIndex) sqlIndex : null;
+    }
+
+    private static SqlIndex read(String location) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = SqlIndex.class.getClassLoader();
+        }
+        try {
+            Enumeration<URL> urls = classLoader.getResources(location);
+            if (!urls.hasMoreElements()) {
+                return null;
+            }
+            Properties properties = new Properties();
+            while (urls.hasMoreElements()) {
+                InputStream inputStream = urls.nextElement().openStream();
+                try {
+                    Reader reader = new InputStreamReader(inputStream, "UTF-8");
+                    properties.load(reader);
+                } finally {
+                    inputStream.close();
+                }
+            }
+            return new SqlIndex(properties);
+        } catch (IOException e) {
+            throw new PageException("加载 SQL 索引 [" + location + "] 失败: " + e, e);
+        }
+    }
+
+    /**
+     * 获取预先生成的 count 查询
+     *
+     * @param sql         原查询 sql
+     * @param countColumn count 列，和生成索引时的配置不一致时不使用索引
+     * @return 不存在时返回 null
+     */
+    public String getCountSql(String sql, String countColumn) {
+        if (!this.countColumn.equals(countColumn)) {
+            return null;
+        }
+        return index.get(COUNT_PREFIX + sql);
+    }
+
+    /**
+     * 获取预先生成的 sqlserver 分页模板，行号使用 {@link SqlServerParser#START_ROW} 和 {@link SqlServerParser#PAGE_SIZE} 占位
+     *
+     * @param sql 原查询 sql
+     * @return 不存在时返回 null
+     */
+    public String getSqlServerPageSql(String sql) {
+        return index.get(SQLSERVER_PREFIX + sql);
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+import com.github.pagehelper.dialect.ReplaceSql;
+import com.github.pagehelper.dialect.replace.RegexWithNolockReplaceSql;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 构建期生成 {@link SqlIndex}，只处理不依赖参数的静态 select 语句（xml 中不包含动态标签的 sql 和 @Select 注解）
+ * <p>
+ * 可以通过 exec-maven-plugin 在 process-classes 阶段执行：
+ * <pre>
+ * java com.github.pagehelper.parser.SqlIndexGenerator mybatis-config.xml target/classes/META-INF/pagehelper/sql-index.properties [countColumn=0] [dialect=sqlserver]
+ * </pre>
+ * 第一个参数为 classpath 中的 mybatis 配置文件，第二个参数为输出文件，设置 dialect=sqlserver 时会同时生成 sqlserver 的分页模板
+ *
+ * @author liuzh
+ */
+public class SqlIndexGenerator {
+    private final CountSqlParser  countSqlParser  = new CountSqlParser();
+    private final SqlServerParser sqlServerParser = new SqlServerParser();
+    private final ReplaceSql      replaceSql      = new RegexWithNolockReplaceSql();
+    private       String          countColumn     = "0";
+    private       boolean         sqlServer;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SqlIndexGenerator <mybatis-config.xml> <output> [countColumn=0] [dialect=sqlserver]");
+            System.exit(1);
+        }
+        SqlIndexGenerator generator = new SqlIndexGenerator();
+        for (int i = 2; i < args.length; i++) {
+            String[] kv = args[i].split("=", 2);
+            if (kv.length == 2 && "countColumn".equals(kv[0])) {
+                generator.setCountColumn(kv[1]);
+            } else if (kv.length == 2 && "dialect".equals(kv[0])) {
+                generator.setSqlServer("sqlserver".equalsIgnoreCase(kv[1]));
+            }
+        }
+        Reader reader = Resources.getResourceAsReader(args[0]);
+        Configuration configuration;
+        try {
+            configuration = new XMLConfigBuilder(reader).parse();
+        } finally {
+            reader.close();
+        }
+        Properties index = generator.generate(configuration);
+        File output = new File(args[1]);
+        generator.write(index, output);
+        System.out.println("SqlIndexGenerator: " + (index.size() - 1) + " sql -> " + output.getAbsolutePath());
+    }
+
+    /**
+     * 生成索引内容
+     *
+     * @param configuration mybatis 配置
+     * @return
+     */
+    public Properties generate(Configuration configuration) {
+        Properties index = new Properties();
+        index.setProperty(SqlIndex.COUNT_COLUMN, countColumn);
+        Set<String> ids = new HashSet<String>();
+        //StrictMap 中同一个 ms 会以长短两个 id 存在，并且可能包含 Ambiguity 对象
+        for (Object value : configuration.getMappedStatements()) {
+            if (!(value instanceof MappedStatement)) {
+                continue;
+            }
+            MappedStatement ms = (MappedStatement) value;
+            if (ms.getSqlCommandType() != SqlCommandType.SELECT || !ids.add(ms.getId()) || !isStatic(ms.getSqlSource())) {
+                continue;
+            }
+            String sql = ms.getBoundSql(null).getSql();
+            if (sqlServer) {
+                index.setProperty(SqlIndex.COUNT_PREFIX + sql,
+                        replaceSql.restore(countSqlParser.getSmartCountSql(replaceSql.replace(sql), countColumn)));
+                try {
+                    index.setProperty(SqlIndex.SQLSERVER_PREFIX + sql,
+                            replaceSql.restore(sqlServerParser.convertToPageSql(replaceSql.replace(sql))));
+                } catch (Exception e) {
+                    //无法转换的 sql 运行时仍然会报错，这里不处理
+                }
+            } else {
+                index.setProperty(SqlIndex.COUNT_PREFIX + sql, countSqlParser.getSmartCountSql(sql, countColumn));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 只有静态 sql 的结果和参数无关
+     *
+     * @param sqlSource
+     * @return
+     */
+    protected boolean isStatic(SqlSource sqlSource) {
+        return sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource;
+    }
+
+    /**
+     * 写入索引文件
+     *
+     * @param index
+     * @param output
+     * @throws IOException
+     */
+    public void write(Properties index, File output) throws IOException {
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("无法创建目录: " + parent.getAbsolutePath());
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+        try {
+            index.store(writer, "Generated by " + SqlIndexGenerator.class.getName());
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void setCountColumn(String countColumn) {
+        this.countColumn = countColumn;
+    }
+
+    public void setSqlServer(boolean sqlServer) {
+        this.sqlServer = sqlServer;
+    }
+}
@@ -108,16 +108,40 @@ public class SqlServerParser {
      * @return
      */
     public String convertToPageSql(String sql, Integer offset, Integer limit) {
+        return convertToPageSql(sql, null, offset, limit);
+    }
+
+    /**
+     * 替换 order by 并转换为分页语句，两者共用一次解析
+     *
+     * @param sql
+     * @param orderBy 为空时使用原 sql 中的 order by
+     * @param offset
+     * @param limit
+     * @return
+     */
+    public String convertToPageSql(String sql, String orderBy, Integer offset, Integer limit) {
+        //折叠 in 参数列表后再解析，offset 和 limit 不是参数，不影响展开
+        InListCollapser.Template template = InListCollapser.collapse(sql);
+        if (template != null) {
+            String pageSql = template.expand(convertToPageSql(template.getSql(), orderBy, offset, limit));
+            if (pageSql != null) {
+                return pageSql;
+            }
+        }
         //解析SQL
         Statement stmt;
         try {
-            stmt = jSqlParser.parse(sql);
+            stmt = BudgetJSqlParser.parseRequired(jSqlParser, sql);
         } catch (Throwable e) {
             throw new PageException("不支持该SQL转换为分页查询!", e);
         }
         if (!(stmt instanceof Select)) {
             throw new PageException("分页语句必须是Select查询!");
         }
+        if (orderBy != null && orderBy.length() > 0) {
+            OrderByParser.replaceOrderBy((Select) stmt, orderBy, jSqlParser);
+        }
         //获取分页查询的select
         Select pageSelect = getPageSelect((Select) stmt);
         String pageSql = pageSelect.toString();
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.parser;
+
+import com.github.pagehelper.JSqlParser;
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnalyticExpression;
+import net.sf.jsqlparser.expression.AnalyticType;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+
+/**
+ * 在查询列中追加 <code>COUNT(*) OVER() PAGEHELPER_TOTAL</code>，分页查询的每一行同时返回总数，不需要再执行 count 查询
+ * <p>
+ * 窗口函数在 DISTINCT 和 LIMIT 之前计算，因此只处理不包含 DISTINCT、分页和 UNION 的简单查询，其他情况返回 null
+ *
+ * @author liuzh
+ */
+public class WindowCountSqlParser {
+    /**
+     * 总数列的别名
+     */
+    public static final String     TOTAL_COLUMN = "PAGEHELPER_TOTAL";
+    private final       JSqlParser jSqlParser;
+
+    public WindowCountSqlParser(JSqlParser jSqlParser) {
+        this.jSqlParser = jSqlParser;
+    }
+
+    /**
+     * 转换为带总数列的 sql
+     *
+     * @param sql        原 sql
+     * @param allColumns 是否支持在单独的 * 后追加列，oracle 和 db2 不支持 SELECT *, ... 的写法
+     * @return 不支持时返回 null
+     */
+    public String convertToWindowCountSql(String sql, boolean allColumns) {
+        try {
+            Statement stmt = jSqlParser.parse(sql);
+            if (!(stmt instanceof Select) || !(((Select) stmt).getSelectBody() instanceof PlainSelect)) {
+                return null;
+            }
+            PlainSelect plainSelect = (PlainSelect) ((Select) stmt).getSelectBody();
+            if (plainSelect.getDistinct() != null
+                    || plainSelect.getLimit() != null
+                    || plainSelect.getOffset() != null
+                    || plainSelect.getFetch() != null
+                    || plainSelect.getTop() != null
+                    || plainSelect.getFirst() != null
+                    || plainSelect.getSkip() != null) {
+                return null;
+            }
+            if (!allColumns) {
+                for (SelectItem selectItem : plainSelect.getSelectItems()) {
+                    if (selectItem instanceof AllColumns) {
+                        return null;
+                    }
+                }
+            }
+            AnalyticExpression count = new AnalyticExpression();
+            count.setName("COUNT");
+            count.setAllColumns(true);
+            count.setType(AnalyticType.OVER);
+            plainSelect.addSelectItems(new SelectExpressionItem(count).withAlias(new Alias(TOTAL_COLUMN, false)));
+            return stmt.toString();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
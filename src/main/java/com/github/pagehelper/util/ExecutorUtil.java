@@ -27,6 +27,7 @@ package com.github.pagehelper.util;
 import com.github.pagehelper.BoundSqlInterceptor;
 import com.github.pagehelper.Dialect;
 import com.github.pagehelper.PageException;
+import com.github.pagehelper.PageHelper;
 import org.apache.ibatis.builder.annotation.ProviderSqlSource;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
@@ -162,7 +163,9 @@ public abstract class ExecutorUtil {
             countBoundSql.setAdditionalParameter(key, additionalParameters.get(key));
         }
         //对 boundSql 的拦截处理
-        if (dialect instanceof BoundSqlInterceptor.Chain) {
+        if (dialect instanceof PageHelper) {
+            countBoundSql = ((PageHelper) dialect).doBoundSql(BoundSqlInterceptor.Type.COUNT_SQL, countBoundSql, countKey, rowBounds);
+        } else if (dialect instanceof BoundSqlInterceptor.Chain) {
             countBoundSql = ((BoundSqlInterceptor.Chain) dialect).doBoundSql(BoundSqlInterceptor.Type.COUNT_SQL, countBoundSql, countKey);
         }
         //执行 count 查询
@@ -197,7 +200,12 @@ public abstract class ExecutorUtil {
             //生成分页的缓存 key
             CacheKey pageKey = cacheKey;
             //处理参数对象
-            parameter = dialect.processParameterObject(ms, parameter, boundSql, pageKey);
+            if (dialect instanceof PageHelper) {
+                //使用 PageRequest 时分页参数不在当前线程中，需要从 rowBounds 获取
+                parameter = ((PageHelper) dialect).processParameterObject(ms, parameter, boundSql, rowBounds, pageKey);
+            } else {
+                parameter = dialect.processParameterObject(ms, parameter, boundSql, pageKey);
+            }
             //调用方言获取分页 sql
             String pageSql = dialect.getPageSql(ms, boundSql, parameter, rowBounds, pageKey);
             BoundSql pageBoundSql = new BoundSql(ms.getConfiguration(), pageSql, boundSql.getParameterMappings(), parameter);
@@ -208,7 +216,9 @@ public abstract class ExecutorUtil {
                 pageBoundSql.setAdditionalParameter(key, additionalParameters.get(key));
             }
             //对 boundSql 的拦截处理
-            if (dialect instanceof BoundSqlInterceptor.Chain) {
+            if (dialect instanceof PageHelper) {
+                pageBoundSql = ((PageHelper) dialect).doBoundSql(BoundSqlInterceptor.Type.PAGE_SQL, pageBoundSql, pageKey, rowBounds);
+            } else if (dialect instanceof BoundSqlInterceptor.Chain) {
                 pageBoundSql = ((BoundSqlInterceptor.Chain) dialect).doBoundSql(BoundSqlInterceptor.Type.PAGE_SQL, pageBoundSql, pageKey);
             }
             //执行分页查询
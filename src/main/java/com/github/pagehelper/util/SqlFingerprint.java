@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.util;
+
+/**
+ * SQL 指纹，对空白规范化后的 SQL 计算 128 位哈希，用作 SQL 改写缓存的 key
+ * <p>
+ * 规范化规则：引号（包括 SQL Server 的 <code>[...]</code>）内的内容和注释原样保留（hint 和 <code>/*keep orderby*&#47;</code> 会影响改写结果），
+ * 其余连续空白压缩为一个空格，首尾空白忽略，行注释结束的换行保留为 <code>\n</code>。
+ * 引号内出现反斜杠（MySQL 转义、PostgreSQL 的 <code>E'...'</code>）或引号外出现 <code>$</code>（PostgreSQL 的 <code>$$...$$</code>）时，
+ * 无法可靠判断字符串的结束位置，从该位置开始到结尾全部原样保留。
+ * 计算过程不会生成规范化后的字符串，哈希相同时可以通过 {@link #equivalent(String, String)} 校验原始 SQL。
+ *
+ * @author liuzh
+ */
+public final class SqlFingerprint {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME  = 0x100000001b3L;
+    private static final long MIX_SEED   = 0x9e3779b97f4a7c15L;
+    private static final long MIX_PRIME  = 0xc2b2ae3d27d4eb4fL;
+
+    private final long high;
+    private final long low;
+
+    private SqlFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * 计算 SQL 指纹
+     *
+     * @param sql
+     * @return
+     */
+    public static SqlFingerprint of(String sql) {
+        Normalizer normalizer = new Normalizer(sql);
+        long h1 = FNV_OFFSET;
+        long h2 = MIX_SEED;
+        int length = 0;
+        int c;
+        while ((c = normalizer.next()) >= 0) {
+            h1 = (h1 ^ c) * FNV_PRIME;
+            h2 = Long.rotateLeft(h2 + c * MIX_PRIME, 31) * MIX_SEED;
+            length++;
+        }
+        return new SqlFingerprint(fmix(h1 ^ length), fmix(h2 + length));
+    }
+
+    /**
+     * 判断两个 SQL 规范化后是否相同
+     *
+     * @param sql1
+     * @param sql2
+     * @return
+     */
+    public static boolean equivalent(String sql1, String sql2) {
+        if (sql1 == sql2) {
+            return true;
+        }
+        if (sql1 == null || sql2 == null) {
+            return false;
+        }
+        if (sql1.equals(sql2)) {
+            return true;
+        }
+        Normalizer n1 = new Normalizer(sql1);
+        Normalizer n2 = new Normalizer(sql2);
+        int c;
+        do {
+            c = n1.next();
+            if (c != n2.next()) {
+                return false;
+            }
+        } while (c >= 0);
+        return true;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SqlFingerprint)) {
+            return false;
+        }
+        SqlFingerprint that = (SqlFingerprint) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return Long.toHexString(high) + Long.toHexString(low);
+    }
+
+    /**
+     * 逐个输出规范化后的字符
+     */
+    private static class Normalizer {
+        private static final int NORMAL        = 0;
+        private static final int QUOTE         = 1;
+        private static final int LINE_COMMENT  = 2;
+        private static final int BLOCK_COMMENT = 3;
+        private static final int VERBATIM      = 4;
+
+        private final String  sql;
+        private final int     length;
+        private       int     index;
+        private       int     state = NORMAL;
+        private       int     commentStart;
+        private       char    quote;
+        private       boolean pendingSpace;
+        private       boolean started;
+
+        Normalizer(String sql) {
+            this.sql = sql;
+            this.length = sql.length();
+        }
+
+        /**
+         * @return 下一个字符，结束时返回 -1
+         */
+        int next() {
+            while (index < length) {
+                char c = sql.charAt(index);
+                switch (state) {
+                    case QUOTE:
+                        index++;
+                        if (c == quote) {
+                            state = NORMAL;
+                        } else if (c == '\\') {
+                            //反斜杠是否转义取决于数据库和配置，后面的内容不再规范化
+                            state = VERBATIM;
+                        }
+                        return c;
+                    case VERBATIM:
+                        index++;
+                        return c;
+                    case LINE_COMMENT:
+                        index++;
+                        if (c == '\n' || c == '\r') {
+                            state = NORMAL;
+                            //换行后的空白直接忽略
+                            started = false;
+                            return '\n';
+                        }
+                        return c;
+                    case BLOCK_COMMENT:
+                        index++;
+                        if (c == '/' && sql.charAt(index - 2) == '*' && index - 2 > commentStart) {
+                            state = NORMAL;
+                        }
+                        return c;
+                    default:
+                        if (Character.isWhitespace(c)) {
+                            index++;
+                            if (started) {
+                                pendingSpace = true;
+                            }
+                            continue;
+                        }
+                        if (pendingSpace) {
+                            pendingSpace = false;
+                            return ' ';
+                        }
+                        started = true;
+                        index++;
+                        if (c == '\'' || c == '"' || c == '`') {
+                            state = QUOTE;
+                            quote = c;
+                        } else if (c == '$') {
+                            //PostgreSQL 的 $$...$$ 或 $tag$...$tag$ 字符串
+                            state = VERBATIM;
+                        } else if (c == '[') {
+                            //sql server 的 [列名] 中可以包含空白
+                            state = QUOTE;
+                            quote = ']';
+                        } else if (c == '-' && index < length && sql.charAt(index) == '-') {
+                            state = LINE_COMMENT;
+                        } else if (c == '/' && index < length && sql.charAt(index) == '*') {
+                            state = BLOCK_COMMENT;
+                            commentStart = index;
+                        }
+                        return c;
+                }
+            }
+            return -1;
+        }
+    }
+}
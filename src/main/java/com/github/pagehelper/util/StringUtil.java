@@ -40,4 +40,21 @@ public class StringUtil {
     public static boolean isNotEmpty(String str) {
         return !isEmpty(str);
     }
+
+    /**
+     * 忽略大小写判断是否包含，不会创建新的字符串
+     *
+     * @param str
+     * @param search
+     * @return
+     */
+    public static boolean containsIgnoreCase(String str, String search) {
+        int max = str.length() - search.length();
+        for (int i = 0; i <= max; i++) {
+            if (str.regionMatches(true, i, search, 0, search.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.JSqlParser;
+import com.github.pagehelper.dialect.helper.SqlServerDialect;
+import com.github.pagehelper.parser.BudgetJSqlParser;
+import com.github.pagehelper.parser.CountSqlParser;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.Statement;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Properties;
+
+/**
+ * 限制解析时间的 JSqlParser
+ *
+ * @author liuzh
+ */
+public class BudgetJSqlParserTest {
+    private static final String SQL       = "select * from user where id > ? order by id";
+    private static final String SMART_SQL = "SELECT count(0) FROM user WHERE id > ?";
+
+    /**
+     * 每次解析需要 200ms
+     */
+    public static class SlowJSqlParser implements JSqlParser {
+        @Override
+        public Statement parse(String statementReader) throws JSQLParserException {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new JSQLParserException(e);
+            }
+            return DEFAULT.parse(statementReader);
+        }
+    }
+
+    private BudgetJSqlParser create(String maxLength) {
+        Properties properties = new Properties();
+        properties.setProperty("sqlParser.timeout", "20");
+        properties.setProperty("sqlParser.maxLength", maxLength);
+        properties.setProperty("sqlParser.delegate", SlowJSqlParser.class.getName());
+        BudgetJSqlParser parser = new BudgetJSqlParser();
+        parser.setProperties(properties);
+        return parser;
+    }
+
+    private void waitDone(BudgetJSqlParser parser) throws InterruptedException {
+        //后台解析完成后结果仍然保留，等待固定时间
+        Thread.sleep(400);
+        Assert.assertEquals(1, parser.getPendingCount());
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        BudgetJSqlParser parser = create("0");
+        CountSqlParser countSqlParser = new CountSqlParser(parser);
+        BudgetJSqlParser.clearDegraded();
+        //超时降级为简单的 count 查询
+        String countSql = countSqlParser.getSmartCountSql(SQL);
+        Assert.assertEquals(countSqlParser.getSimpleCountSql(SQL), countSql);
+        Assert.assertTrue(BudgetJSqlParser.clearDegraded());
+        //后台解析完成后直接使用解析结果
+        waitDone(parser);
+        Assert.assertEquals(SMART_SQL, countSqlParser.getSmartCountSql(SQL));
+        Assert.assertFalse(BudgetJSqlParser.clearDegraded());
+        Assert.assertEquals(0, parser.getPendingCount());
+    }
+
+    @Test
+    public void testMaxLength() throws InterruptedException {
+        BudgetJSqlParser parser = create("10");
+        CountSqlParser countSqlParser = new CountSqlParser(parser);
+        long start = System.currentTimeMillis();
+        Assert.assertEquals(countSqlParser.getSimpleCountSql(SQL), countSqlParser.getSmartCountSql(SQL));
+        //超长的 sql 不等待
+        Assert.assertTrue(System.currentTimeMillis() - start < 150);
+        Assert.assertTrue(BudgetJSqlParser.clearDegraded());
+        waitDone(parser);
+        Assert.assertEquals(SMART_SQL, countSqlParser.getSmartCountSql(SQL));
+    }
+
+    @Test
+    public void testRequired() throws JSQLParserException {
+        BudgetJSqlParser parser = create("0");
+        Assert.assertNotNull(BudgetJSqlParser.parseRequired(parser, SQL));
+        Assert.assertFalse(BudgetJSqlParser.clearDegraded());
+        Assert.assertEquals(0, parser.getPendingCount());
+    }
+
+    /**
+     * 可以直接获取分页模板缓存的 sqlserver 方言
+     */
+    public static class CacheSqlServerDialect extends SqlServerDialect {
+        String getPageTemplate(String sql, String orderBy, boolean cached) {
+            String template = getPageTemplate(sql, orderBy);
+            Assert.assertEquals(cached, CACHE_PAGESQL.get(orderBy + KEY_SEPARATOR + sql) != null);
+            return template;
+        }
+    }
+
+    @Test
+    public void testSqlServerOrderBy() {
+        Properties properties = new Properties();
+        properties.setProperty("sqlParser", BudgetJSqlParser.class.getName());
+        properties.setProperty("sqlParser.timeout", "20");
+        properties.setProperty("sqlParser.delegate", SlowJSqlParser.class.getName());
+        CacheSqlServerDialect dialect = new CacheSqlServerDialect();
+        dialect.setProperties(properties);
+        BudgetJSqlParser.clearDegraded();
+        //order by 解析超时，降级为直接拼接，结果不缓存
+        String template = dialect.getPageTemplate("select * from user where id > ?", "name", false);
+        Assert.assertTrue(template.contains("ORDER BY name"));
+        Assert.assertFalse(BudgetJSqlParser.clearDegraded());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.parser.CountJoinEliminator;
+import com.github.pagehelper.parser.CountSqlParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * countJoinUniqueKeys 测试
+ *
+ * @author liuzh
+ */
+public class CountJoinEliminatorTest {
+    private CountSqlParser countSqlParser;
+
+    @Before
+    public void before() {
+        countSqlParser = new CountSqlParser();
+        countSqlParser.setCountJoinEliminator(new CountJoinEliminator("dept.id, role.id;`area`.code"));
+    }
+
+    private String count(String sql) {
+        return countSqlParser.getSmartCountSql(sql, "0", false, false);
+    }
+
+    @Test
+    public void testEliminate() {
+        Assert.assertEquals("SELECT count(0) FROM user u WHERE u.status = ?",
+                count("select u.*, d.name from user u left join dept d on d.id = u.dept_id where u.status = ? order by d.name"));
+        Assert.assertEquals("SELECT count(0) FROM user u",
+                count("select u.*, d.name, r.name from user u left outer join dept d on u.dept_id = d.id and d.deleted = 0 " +
+                        "left join role r on r.id = d.role_id"));
+        Assert.assertEquals("SELECT count(0) FROM user",
+                count("select * from user left join dept on dept.id = user.dept_id left join area a on a.`code` = user.area"));
+    }
+
+    @Test
+    public void testKeep() {
+        //where 中引用
+        Assert.assertEquals("SELECT count(0) FROM user u LEFT JOIN dept d ON d.id = u.dept_id WHERE d.name = ?",
+                count("select * from user u left join dept d on d.id = u.dept_id where d.name = ?"));
+        //不是唯一键
+        Assert.assertEquals("SELECT count(0) FROM user u LEFT JOIN dept d ON d.parent_id = u.dept_id",
+                count("select * from user u left join dept d on d.parent_id = u.dept_id"));
+        //inner join 会过滤数据
+        Assert.assertEquals("SELECT count(0) FROM user u JOIN dept d ON d.id = u.dept_id",
+                count("select * from user u join dept d on d.id = u.dept_id"));
+        //没有限定表名的列无法判断
+        Assert.assertEquals("SELECT count(0) FROM user u LEFT JOIN dept d ON d.id = u.dept_id WHERE status = 1",
+                count("select * from user u left join dept d on d.id = u.dept_id where status = 1"));
+        //join 中包含参数
+        Assert.assertEquals("SELECT count(0) FROM user u LEFT JOIN dept d ON d.id = u.dept_id AND d.type = ?",
+                count("select * from user u left join dept d on d.id = u.dept_id and d.type = ?"));
+        //子查询中引用
+        Assert.assertEquals("SELECT count(0) FROM user u LEFT JOIN dept d ON d.id = u.dept_id WHERE EXISTS (SELECT 1 FROM role r WHERE r.dept_id = d.id)",
+                count("select * from user u left join dept d on d.id = u.dept_id where exists (select 1 from role r where r.dept_id = d.id)"));
+        //被后面的 join 引用
+        Assert.assertEquals("SELECT count(0) FROM user u LEFT JOIN dept d ON d.id = u.dept_id JOIN role r ON r.id = d.role_id",
+                count("select * from user u left join dept d on d.id = u.dept_id join role r on r.id = d.role_id"));
+        //group by 时使用子查询，不处理
+        Assert.assertEquals("SELECT count(0) FROM (SELECT u.id FROM user u LEFT JOIN dept d ON d.id = u.dept_id GROUP BY u.id) table_count",
+                count("select u.id from user u left join dept d on d.id = u.dept_id group by u.id"));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.parser.CountSqlParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * count 查询中子查询的 order by 和 distinct 处理
+ *
+ * @author liuzh
+ */
+public class CountSubSelectTest {
+    private final CountSqlParser countSqlParser = new CountSqlParser();
+
+    private String count(String sql) {
+        return countSqlParser.getSmartCountSql(sql, "0", false, false);
+    }
+
+    @Test
+    public void testWhereSubSelect() {
+        Assert.assertEquals("SELECT count(0) FROM user WHERE id IN (SELECT uid FROM role WHERE type = ?)",
+                count("select * from user where id in (select uid from role where type = ? order by name)"));
+        Assert.assertEquals("SELECT count(0) FROM user u WHERE EXISTS (SELECT 1 FROM role r WHERE r.uid = u.id)",
+                count("select * from user u where exists (select distinct 1 from role r where r.uid = u.id order by r.name)"));
+        Assert.assertEquals("SELECT count(0) FROM user WHERE id IN (SELECT uid FROM role)",
+                count("select * from user where id in (select distinct uid from role)"));
+        //order by 中有参数时保留
+        Assert.assertEquals("SELECT count(0) FROM user WHERE id IN (SELECT uid FROM role ORDER BY field(type, ?))",
+                count("select * from user where id in (select uid from role order by field(type, ?))"));
+    }
+
+    @Test
+    public void testScalarSubSelect() {
+        Assert.assertEquals("SELECT count(0) FROM (SELECT DISTINCT u.id, (SELECT max(name) FROM role r WHERE r.uid = u.id) rname FROM user u) table_count",
+                count("select distinct u.id, (select max(name) from role r where r.uid = u.id order by r.id) rname from user u order by u.id"));
+        //having 中的子查询
+        Assert.assertEquals("SELECT count(0) FROM (SELECT type FROM user GROUP BY type HAVING count(*) > (SELECT count(*) FROM role)) table_count",
+                count("select type from user group by type having count(*) > (select count(*) from role order by 1) order by type"));
+    }
+
+    @Test
+    public void testLimited() {
+        //limit 时 order by 决定了结果
+        Assert.assertEquals("SELECT count(0) FROM user WHERE id IN (SELECT uid FROM role ORDER BY id DESC LIMIT 10)",
+                count("select * from user where id in (select uid from role order by id desc limit 10)"));
+        Assert.assertEquals("SELECT count(0) FROM (SELECT * FROM user ORDER BY id LIMIT 10) t",
+                count("select * from (select * from user order by id limit 10) t order by id"));
+        Assert.assertEquals("SELECT count(0) FROM ((SELECT id FROM user ORDER BY id LIMIT 5) UNION (SELECT id FROM role)) table_count",
+                count("(select id from user order by id limit 5) union (select id from role order by id) order by id"));
+        //with 中的 limit
+        Assert.assertEquals("WITH t AS (SELECT * FROM user ORDER BY id LIMIT 5) SELECT count(0) FROM t",
+                count("with t as (select * from user order by id limit 5) select * from t"));
+        //limit、offset 时 distinct 和 order by 都决定了结果
+        Assert.assertEquals("SELECT count(0) FROM user u WHERE EXISTS (SELECT DISTINCT d FROM u OFFSET 3)",
+                count("select * from user u where exists (select distinct d from u offset 3)"));
+        Assert.assertEquals("SELECT count(0) FROM user WHERE x IN (SELECT DISTINCT d FROM u WHERE e = ? ORDER BY d LIMIT 1)",
+                count("select * from user where x in (select distinct d from u where e = ? order by d limit 1)"));
+    }
+}
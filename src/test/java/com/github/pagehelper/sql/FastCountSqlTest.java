@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.parser.CountSqlParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 简单查询跳过 JSqlParser 生成 count 查询，结果需要和 JSqlParser 一致
+ *
+ * @author liuzh
+ */
+public class FastCountSqlTest {
+    private final CountSqlParser countSqlParser = new CountSqlParser();
+    private final CountSqlParser fastCountSqlParser = new CountSqlParser();
+
+    {
+        fastCountSqlParser.setFastPath(true);
+    }
+
+    private void assertSame(String sql) {
+        String expected = countSqlParser.getSmartCountSql(sql, "0", false, false);
+        String actual = fastCountSqlParser.getSmartCountSql(sql, "0", false, false);
+        Assert.assertTrue(expected + " <> " + actual,
+                expected.replaceAll("\\s+", " ").equalsIgnoreCase(actual.replaceAll("\\s+", " ")));
+    }
+
+    @Test
+    public void testFastPath() {
+        Assert.assertEquals("SELECT count(0) from user where id > ?",
+                fastCountSqlParser.getSmartCountSql("select * from user where id > ? order by id desc", "0", false, false));
+        Assert.assertEquals("SELECT count(id) from user u left join role r on r.uid = u.id where u.name like ?",
+                fastCountSqlParser.getSmartCountSql("select u.id, u.name, coalesce(r.name, 'x') rname from user u left join role r on r.uid = u.id where u.name like ?", "id", false, false));
+        assertSame("select * from user where id > ? order by id desc");
+        assertSame("select u.id, u.name, coalesce(r.name, 'order by') rname from user u left join role r on r.uid = u.id where u.name like ? order by u.name, u.id");
+        assertSame("select id, name from user where name = 'a, b from c' and id in (select uid from role where type = ?)");
+        assertSame("select id, extract(year from birthday) y from user where id between ? and ?");
+    }
+
+    @Test
+    public void testFallback() {
+        //以下 sql 都交给 JSqlParser 处理
+        assertSame("select distinct name from user order by name");
+        assertSame("select name, count(*) from user group by name order by name");
+        assertSame("select max(id) from user");
+        assertSame("select coalesce(max(id), 0) from user");
+        assertSame("select (id + 1) as nid from user where nid > 1");
+        assertSame("select id, ? as p from user");
+        assertSame("select id from user order by field(id, ?)");
+        assertSame("select * from user where id in (select uid from role order by name) order by id");
+        assertSame("select id from user union select id from role order by id");
+        assertSame("with t as (select * from user) select * from t order by id");
+        assertSame("/*hint*/ select * from user order by id");
+        assertSame("select * from user limit 10");
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.parser.CountSqlParser;
+import com.github.pagehelper.parser.InListCollapser;
+import com.github.pagehelper.parser.OrderByParser;
+import com.github.pagehelper.parser.SqlServerParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * in 参数列表折叠
+ *
+ * @author liuzh
+ */
+public class InListCollapserTest {
+
+    @Test
+    public void testCollapse() {
+        InListCollapser.Template template = InListCollapser.collapse(
+                "select * from user where name = ? and id in (?, ?,?) and type not IN(\n?\n,?) and code in (?) and note = 'in (?, ?)'");
+        Assert.assertEquals("select * from user where name = ? and id in (?) and type not IN(?) and code in (?) and note = 'in (?, ?)'",
+                template.getSql());
+        Assert.assertEquals("SELECT count(0) FROM user WHERE name = ? AND id IN (?, ?, ?) AND type NOT IN (?, ?) AND code IN (?) AND note = 'in (?, ?)'",
+                template.expand("SELECT count(0) FROM user WHERE name = ? AND id IN (?) AND type NOT IN (?) AND code IN (?) AND note = 'in (?, ?)'"));
+        //? 数量不一致
+        Assert.assertNull(template.expand("SELECT count(0) FROM user WHERE id IN (?)"));
+        //不需要折叠
+        Assert.assertNull(InListCollapser.collapse("select * from user where id in (?) or id in (1, 2)"));
+        Assert.assertNull(InListCollapser.collapse("select * from user join role on id in (?, x)"));
+        Assert.assertNull(InListCollapser.collapse("select * from user where login in(select id from role where a = ?)"));
+    }
+
+    @Test
+    public void testRewrite() {
+        String sql = "select * from user where id in (?, ?, ?) and name = ? order by id";
+        Assert.assertEquals("SELECT count(0) FROM user WHERE id IN (?, ?, ?) AND name = ?",
+                new CountSqlParser().getSmartCountSql(sql));
+        Assert.assertEquals("SELECT * FROM user WHERE id IN (?, ?, ?) AND name = ? order by name",
+                OrderByParser.converToOrderBySql(sql, "name"));
+        Assert.assertEquals("SELECT TOP 10 * FROM (SELECT ROW_NUMBER() OVER (ORDER BY id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM user WHERE id IN (?, ?, ?) AND name = ?) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > 0 ORDER BY PAGE_ROW_NUMBER",
+                new SqlServerParser().convertToPageSql(sql, 0, 10));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.dialect.ReplaceSql;
+import com.github.pagehelper.dialect.replace.RegexWithNolockReplaceSql;
+import com.github.pagehelper.dialect.replace.SimpleWithNolockReplaceSql;
+import com.github.pagehelper.parser.SqlServerParser;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * with(nolock) 处理测试，和原来的 String.replaceAll 实现比较
+ *
+ * @author liuzh
+ */
+public class ReplaceSqlTest {
+    private static final String[] SQLS = {
+            "select * from user",
+            "select * from user with(nolock)",
+            "select * from user WITH (NOLOCK) where id = 1",
+            "select * from user u with ( nolock ) left join role r With(NoLock) on u.id = r.id",
+            "select * from user u with(nolock), role r with(nolock) where u.id = r.id order by u.id",
+            "select * from user where name = 'nolock'",
+            "select * from user_PAGEWITHNOLOCK",
+            "select * from (select * from user with(nolock)) t with(nolock)"
+    };
+
+    private String regexReplace(String sql) {
+        return sql.replaceAll("((?i)\\s*(\\w+)\\s*with\\s*\\(\\s*nolock\\s*\\))", " $2_PAGEWITHNOLOCK");
+    }
+
+    private String regexRestore(String sql) {
+        return sql.replaceAll("\\s*(\\w*?)_PAGEWITHNOLOCK", " $1 WITH(NOLOCK)");
+    }
+
+    private String simpleReplace(String sql) {
+        return sql.replaceAll("((?i)with\\s*\\(nolock\\))", ", PAGEWITHNOLOCK");
+    }
+
+    private String simpleRestore(String sql) {
+        return sql.replaceAll(", PAGEWITHNOLOCK", " with(nolock)");
+    }
+
+    @Test
+    public void testRegex() {
+        ReplaceSql replaceSql = new RegexWithNolockReplaceSql();
+        for (String sql : SQLS) {
+            String replaced = replaceSql.replace(sql);
+            Assert.assertEquals(regexReplace(sql), replaced);
+            Assert.assertEquals(regexRestore(replaced), replaceSql.restore(replaced));
+            Assert.assertEquals(regexRestore(sql), replaceSql.restore(sql));
+        }
+    }
+
+    @Test
+    public void testSimple() {
+        ReplaceSql replaceSql = new SimpleWithNolockReplaceSql();
+        for (String sql : SQLS) {
+            String replaced = replaceSql.replace(sql);
+            Assert.assertEquals(simpleReplace(sql), replaced);
+            Assert.assertEquals(simpleRestore(replaced), replaceSql.restore(replaced));
+            Assert.assertEquals(simpleRestore(sql), replaceSql.restore(sql));
+        }
+    }
+
+    @Ignore("性能测试，手动执行")
+    @Test
+    public void testBenchmark() {
+        ReplaceSql replaceSql = new RegexWithNolockReplaceSql();
+        SqlServerParser parser = new SqlServerParser();
+        int times = 20000;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < times; i++) {
+                for (String sql : SQLS) {
+                    regexRestore(regexReplace(sql));
+                }
+            }
+            long old = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < times; i++) {
+                for (String sql : SQLS) {
+                    replaceSql.restore(replaceSql.replace(sql));
+                }
+            }
+            long now = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < times / 100; i++) {
+                for (String sql : SQLS) {
+                    parser.convertToPageSql(replaceSql.replace(sql), null, null);
+                }
+            }
+            long parse = (System.nanoTime() - start) * 100;
+            System.out.println("replaceAll: " + old / (times * SQLS.length) + "ns/op, precompiled: "
+                    + now / (times * SQLS.length) + "ns/op, parse: " + parse / (times * SQLS.length) + "ns/op");
+        }
+    }
+}
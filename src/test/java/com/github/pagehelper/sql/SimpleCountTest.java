@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.parser.CountSqlParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * isSimpleCount 测试
+ *
+ * @author liuzh
+ */
+public class SimpleCountTest {
+    private final CountSqlParser countSqlParser = new CountSqlParser();
+
+    private String count(String sql) {
+        return countSqlParser.getSmartCountSql(sql, "0", false, false);
+    }
+
+    @Test
+    public void testParameter() {
+        Assert.assertEquals("SELECT count(0) FROM (SELECT id, ? AS flag FROM user) table_count",
+                count("select id, ? as flag from user"));
+        Assert.assertEquals("SELECT count(0) FROM (SELECT id, coalesce(name, ?) FROM user) table_count",
+                count("select id, coalesce(name, ?) from user"));
+        Assert.assertEquals("SELECT count(0) FROM (SELECT id, (SELECT name FROM role WHERE id = ?) FROM user) table_count",
+                count("select id, (select name from role where id = ?) from user"));
+        //字符串中的问号不是参数
+        Assert.assertEquals("SELECT count(0) FROM user WHERE id = ?",
+                count("select id, 'a?b' as flag from user where id = ?"));
+        //访问器遍历不到的参数
+        Assert.assertEquals("SELECT count(0) FROM (SELECT id, created + INTERVAL ? day FROM user) table_count",
+                count("select id, created + interval ? day from user"));
+        Assert.assertEquals("SELECT count(0) FROM (SELECT id, row_number() OVER (PARTITION BY ? ORDER BY id) FROM user) table_count",
+                count("select id, row_number() over (partition by ? order by id) from user"));
+        Assert.assertEquals("SELECT count(0) FROM (SELECT id, substring(name from ?) FROM user) table_count",
+                count("select id, substring(name from ?) from user"));
+        Assert.assertEquals("SELECT count(0) FROM (SELECT id, JSON_OBJECT( KEY 'a' VALUE ? )  FROM user) table_count",
+                count("select id, json_object(key 'a' value ?) from user"));
+    }
+
+    @Test
+    public void testAggregateFunction() {
+        Assert.assertEquals("SELECT count(0) FROM (SELECT max(id) FROM user) table_count",
+                count("select max(id) from user"));
+        Assert.assertEquals("SELECT count(0) FROM (SELECT Avg(id) FROM user) table_count",
+                count("select Avg(id) from user"));
+        Assert.assertEquals("SELECT count(0) FROM user",
+                count("select nvl(name, 'a'), upper(code) from user"));
+        //新增聚合函数后重新判断
+        Assert.assertEquals("SELECT count(0) FROM user", count("select test_agg_x(name) from user"));
+        CountSqlParser.addAggregateFunctions(" test_agg_ ");
+        Assert.assertEquals("SELECT count(0) FROM (SELECT test_agg_x(name) FROM user) table_count",
+                count("select test_agg_x(name) from user"));
+    }
+}
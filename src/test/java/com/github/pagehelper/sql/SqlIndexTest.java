@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.sql;
+
+import com.github.pagehelper.parser.CountSqlParser;
+import com.github.pagehelper.parser.SqlIndex;
+import com.github.pagehelper.parser.SqlIndexGenerator;
+import com.github.pagehelper.parser.SqlServerParser;
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Properties;
+
+/**
+ * @author liuzh
+ */
+public class SqlIndexTest {
+
+    private Configuration configuration() throws IOException {
+        Reader reader = Resources.getResourceAsReader("hsqldb/mybatis-config.xml");
+        try {
+            return new XMLConfigBuilder(reader).parse();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testGenerate() throws IOException {
+        Configuration configuration = configuration();
+        SqlIndexGenerator generator = new SqlIndexGenerator();
+        generator.setCountColumn("1");
+        generator.setSqlServer(true);
+        Properties properties = generator.generate(configuration);
+
+        File file = File.createTempFile("sql-index", ".properties");
+        file.deleteOnExit();
+        generator.write(properties, file);
+        Properties loaded = new Properties();
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            loaded.load(new InputStreamReader(inputStream, "UTF-8"));
+        } finally {
+            inputStream.close();
+        }
+        SqlIndex sqlIndex = new SqlIndex(loaded);
+
+        //静态 sql
+        MappedStatement ms = configuration.getMappedStatement("com.github.pagehelper.mapper.UserMapper.selectAllOrderby");
+        String sql = ms.getBoundSql(null).getSql();
+        Assert.assertEquals(new CountSqlParser().getSmartCountSql(sql, "1"), sqlIndex.getCountSql(sql, "1"));
+        Assert.assertNull(sqlIndex.getCountSql(sql, "0"));
+        Assert.assertEquals(new SqlServerParser().convertToPageSql(sql), sqlIndex.getSqlServerPageSql(sql));
+        //包含参数但不是动态 sql
+        ms = configuration.getMappedStatement("com.github.pagehelper.mapper.UserMapper.selectGreterThanId");
+        sql = ms.getBoundSql(null).getSql();
+        Assert.assertNotNull(sqlIndex.getCountSql(sql, "1"));
+    }
+
+    @Test
+    public void testCountSqlParser() {
+        String sql = "select * from user order by id";
+        Properties properties = new Properties();
+        properties.setProperty(SqlIndex.COUNT_COLUMN, "0");
+        properties.setProperty(SqlIndex.COUNT_PREFIX + sql, "select count(0) from user");
+        CountSqlParser countSqlParser = new CountSqlParser();
+        countSqlParser.setSqlIndex(new SqlIndex(properties));
+        Assert.assertEquals("select count(0) from user", countSqlParser.getSmartCountSql(sql));
+        //不在索引中的 sql 仍然解析
+        Assert.assertEquals("SELECT count(0) FROM user WHERE id > 1", countSqlParser.getSmartCountSql("select * from user where id > 1 order by id"));
+        //countColumn 不一致时不使用索引
+        Assert.assertEquals("SELECT count(1) FROM user", countSqlParser.getSmartCountSql(sql, "1"));
+    }
+
+    @Test
+    public void testLoadNotExists() {
+        Assert.assertNull(SqlIndex.load("META-INF/pagehelper/not-exists.properties"));
+    }
+}
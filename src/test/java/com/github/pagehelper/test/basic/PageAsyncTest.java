@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic;
+
+import com.github.pagehelper.ISelect;
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.mapper.UserMapper;
+import com.github.pagehelper.model.User;
+import com.github.pagehelper.util.MybatisHelper;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class PageAsyncTest {
+    private ExecutorService executor;
+
+    private final ISelect select = new ISelect() {
+        @Override
+        public void doSelect() {
+            SqlSession sqlSession = MybatisHelper.getSqlSession();
+            try {
+                sqlSession.getMapper(UserMapper.class).selectAll();
+            } finally {
+                sqlSession.close();
+            }
+        }
+    };
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        Future<Page<User>> future = PageHelper.startPage(2, 10).doSelectPageAsync(select, executor);
+        //分页参数已经从当前线程取走
+        assertNull(PageHelper.getLocalPage());
+        Page<User> page = future.get();
+        assertEquals(10, page.size());
+        assertEquals(11, page.get(0).getId());
+        assertEquals(183, page.getTotal());
+        assertEquals(19, page.getPages());
+    }
+
+    @Test
+    public void testConcurrentCount() throws Exception {
+        Page<User> page = PageHelper.startPage(3, 20).<User>doSelectPageAsync(select, executor, true).get();
+        assertNull(PageHelper.getLocalPage());
+        assertEquals(20, page.size());
+        assertEquals(41, page.get(0).getId());
+        assertEquals(183, page.getTotal());
+        assertEquals(10, page.getPages());
+        assertTrue(page.isCount());
+    }
+
+    @Test
+    public void testConcurrentCountSingleThread() throws Exception {
+        //只有一个线程时，count 查询在分页查询之后执行
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            Page<User> page = PageHelper.startPage(1, 10).<User>doSelectPageAsync(select, single, true).get();
+            assertEquals(10, page.size());
+            assertEquals(183, page.getTotal());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+}
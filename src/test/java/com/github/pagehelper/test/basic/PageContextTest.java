@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.mapper.UserMapper;
+import com.github.pagehelper.model.User;
+import com.github.pagehelper.page.PageContext;
+import com.github.pagehelper.util.MybatisHelper;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 通过 PageContext 在线程池中分页
+ */
+public class PageContextTest {
+
+    @Test
+    public void testWrapCallable() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PageHelper.startPage(2, 10);
+            PageContext context = PageContext.capture();
+            //当前线程不再有分页参数
+            assertNull(PageHelper.getLocalPage());
+            List<User> list = executor.submit(context.wrap(new Callable<List<User>>() {
+                @Override
+                public List<User> call() {
+                    SqlSession sqlSession = MybatisHelper.getSqlSession();
+                    try {
+                        return sqlSession.getMapper(UserMapper.class).selectAll();
+                    } finally {
+                        sqlSession.close();
+                    }
+                }
+            })).get();
+            assertTrue(list instanceof Page);
+            assertEquals(10, list.size());
+            assertEquals(11, (long) list.get(0).getId());
+            assertEquals(183, ((Page<?>) list).getTotal());
+            //执行后线程池中的线程也不再有分页参数
+            assertNull(executor.submit(new Callable<Page>() {
+                @Override
+                public Page call() {
+                    return PageHelper.getLocalPage();
+                }
+            }).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWrapRunnable() {
+        final Page<?>[] pages = new Page[1];
+        PageHelper.startPage(1, 10);
+        Runnable runnable = PageContext.capture().wrap(new Runnable() {
+            @Override
+            public void run() {
+                pages[0] = PageHelper.getLocalPage();
+            }
+        });
+        PageHelper.startPage(3, 5);
+        runnable.run();
+        assertEquals(1, pages[0].getPageNum());
+        //恢复原来的分页参数
+        assertEquals(3, PageHelper.getLocalPage().getPageNum());
+        PageHelper.clearPage();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic;
+
+import com.github.pagehelper.PageExporter;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.mapper.UserMapper;
+import com.github.pagehelper.model.User;
+import com.github.pagehelper.util.MybatisHelper;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class PageExporterTest {
+    private ExecutorService executor;
+
+    private final PageExporter.Query<User> query = new PageExporter.Query<User>() {
+        @Override
+        public List<User> select(SqlSession sqlSession) {
+            return sqlSession.getMapper(UserMapper.class).selectAll();
+        }
+    };
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOrdered() {
+        final List<Integer> ids = new ArrayList<Integer>();
+        long rows = new PageExporter<User>(MybatisHelper.getSqlSessionFactory(), executor)
+                .chunkSize(20).parallelism(3)
+                .export(query, new PageExporter.RowHandler<User>() {
+                    @Override
+                    public void handle(User row) {
+                        ids.add(row.getId());
+                    }
+                });
+        assertEquals(183, rows);
+        assertEquals(183, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 1, ids.get(i).intValue());
+        }
+        assertNull(PageHelper.getLocalPage());
+    }
+
+    @Test
+    public void testUnordered() {
+        final List<Integer> ids = new ArrayList<Integer>();
+        long rows = new PageExporter<User>(MybatisHelper.getSqlSessionFactory(), executor)
+                .chunkSize(50).parallelism(2).ordered(false)
+                .export(query, new PageExporter.RowHandler<User>() {
+                    @Override
+                    public void handle(User row) {
+                        ids.add(row.getId());
+                    }
+                });
+        assertEquals(183, rows);
+        Collections.sort(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 1, ids.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testHandlerError() {
+        try {
+            new PageExporter<User>(MybatisHelper.getSqlSessionFactory(), executor)
+                    .chunkSize(10)
+                    .export(query, new PageExporter.RowHandler<User>() {
+                        @Override
+                        public void handle(User row) {
+                            if (row.getId() == 15) {
+                                throw new IllegalStateException("stop");
+                            }
+                        }
+                    });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("stop", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic;
+
+import com.github.pagehelper.BoundSqlInterceptor;
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.mapper.UserMapper;
+import com.github.pagehelper.model.User;
+import com.github.pagehelper.page.PagePrefetch;
+import com.github.pagehelper.util.MybatisHelper;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class PagePrefetchTest {
+
+    /**
+     * 记录执行的 count 和分页查询次数
+     */
+    static class SqlCounter implements BoundSqlInterceptor {
+        int count;
+        int page;
+
+        @Override
+        public BoundSql boundSql(Type type, BoundSql boundSql, CacheKey cacheKey, Chain chain) {
+            if (type == Type.COUNT_SQL) {
+                count++;
+            } else if (type == Type.PAGE_SQL) {
+                page++;
+            }
+            return chain.doBoundSql(type, boundSql, cacheKey);
+        }
+    }
+
+    @Test
+    public void testPrefetch() {
+        SqlCounter counter = new SqlCounter();
+        for (int pageNum = 1; pageNum <= 4; pageNum++) {
+            SqlSession sqlSession = MybatisHelper.getSqlSession();
+            try {
+                UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+                PageHelper.startPage(pageNum, 10).prefetch(3).boundSqlInterceptor(counter);
+                List<User> list = userMapper.selectAll();
+                assertEquals(10, list.size());
+                assertEquals((pageNum - 1) * 10 + 1, list.get(0).getId());
+                assertEquals(pageNum * 10, list.get(9).getId());
+                assertEquals(183, ((Page<?>) list).getTotal());
+                assertEquals(19, ((Page<?>) list).getPages());
+            } finally {
+                sqlSession.close();
+            }
+        }
+        //第 1 页预取 1-3 页，第 4 页重新查询
+        assertEquals(2, counter.count);
+        assertEquals(2, counter.page);
+    }
+
+    @Test
+    public void testPrefetchLastPage() {
+        SqlCounter counter = new SqlCounter();
+        SqlSession sqlSession = MybatisHelper.getSqlSession();
+        try {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            PageHelper.startPage(18, 10).prefetch(5).boundSqlInterceptor(counter);
+            List<User> list = userMapper.selectAll();
+            assertEquals(10, list.size());
+            assertEquals(171, list.get(0).getId());
+
+            PageHelper.startPage(19, 10).prefetch(5).boundSqlInterceptor(counter);
+            list = userMapper.selectAll();
+            assertEquals(3, list.size());
+            assertEquals(181, list.get(0).getId());
+            assertEquals(183, ((Page<?>) list).getTotal());
+
+            //不使用 prefetch 时正常查询
+            PageHelper.startPage(19, 10).boundSqlInterceptor(counter);
+            list = userMapper.selectAll();
+            assertEquals(3, list.size());
+        } finally {
+            sqlSession.close();
+        }
+        assertEquals(2, counter.count);
+        assertEquals(2, counter.page);
+    }
+
+    @Test
+    public void testCopyRows() {
+        PagePrefetch pagePrefetch = new PagePrefetch();
+        pagePrefetch.setProperties(new Properties());
+        Page prefetch = new Page(1, 1, false).prefetch(2);
+        User user = new User();
+        user.setId(1);
+        user.setName("a");
+        pagePrefetch.put("key", prefetch, Arrays.asList(user, new User()));
+        //修改原始对象和返回的对象都不影响缓存
+        user.setName("b");
+        List<User> list = pagePrefetch.get("key", new Page(1, 1, false));
+        assertEquals("a", list.get(0).getName());
+        list.get(0).setName("c");
+        assertEquals("a", ((User) pagePrefetch.get("key", new Page(1, 1, false)).get(0)).getName());
+        assertNotSame(list.get(0), pagePrefetch.get("key", new Page(1, 1, false)).get(0));
+        //不能序列化的数据不缓存
+        pagePrefetch.put("other", prefetch, Arrays.asList(new Object(), new Object()));
+        assertNull(pagePrefetch.get("other", new Page(1, 1, false)));
+    }
+
+    @Test
+    public void testMissKeepsTotal() {
+        PagePrefetch pagePrefetch = new PagePrefetch();
+        pagePrefetch.setProperties(new Properties());
+        Page prefetch = new Page(1, 10, true).prefetch(3);
+        prefetch.setTotal(183);
+        pagePrefetch.put("key", prefetch, Arrays.asList(1, 2, 3));
+        Page page = new Page(4, 10, true);
+        assertNull(pagePrefetch.get("key", page));
+        //未命中时不设置总数
+        assertEquals(0, page.getTotal());
+    }
+}
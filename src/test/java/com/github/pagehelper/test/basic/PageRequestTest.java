@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageRequest;
+import com.github.pagehelper.mapper.UserMapper;
+import com.github.pagehelper.model.User;
+import com.github.pagehelper.util.MybatisHelper;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PageRequestTest {
+
+    @Test
+    public void testPageRequest() {
+        SqlSession sqlSession = MybatisHelper.getSqlSession();
+        UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+        try {
+            PageRequest request = PageRequest.of(2, 10);
+            List<User> list = userMapper.selectAll(request);
+            assertTrue(list instanceof Page);
+            assertEquals(2, ((Page<?>) list).getPageNum());
+            assertEquals(10, list.size());
+            assertEquals(11, list.get(0).getId());
+            assertEquals(183, ((Page<?>) list).getTotal());
+            assertEquals(Long.valueOf(183), request.getTotal());
+            assertSame(request.getPage(), list);
+            //不会残留在当前线程
+            assertNull(PageHelper.getLocalPage());
+
+            list = userMapper.selectAll(PageRequest.of(1, 5, false).orderBy("id desc"));
+            assertEquals(5, list.size());
+            assertEquals(183, list.get(0).getId());
+            assertEquals(-1, ((Page<?>) list).getTotal());
+            assertNull(PageHelper.getLocalPage());
+
+            //没有使用 PageRequest 的查询不受影响
+            list = userMapper.selectAll();
+            assertFalse(list instanceof Page);
+            assertEquals(183, list.size());
+        } finally {
+            sqlSession.close();
+        }
+    }
+
+    @Test
+    public void testPendingStartPage() {
+        SqlSession sqlSession = MybatisHelper.getSqlSession();
+        UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+        try {
+            Page<User> pending = PageHelper.startPage(3, 20);
+            List<User> list = userMapper.selectAll(PageRequest.of(1, 5));
+            assertEquals(5, list.size());
+            assertEquals(1, list.get(0).getId());
+            //PageRequest 不会覆盖尚未消费的 startPage
+            assertSame(pending, PageHelper.getLocalPage());
+
+            list = userMapper.selectAll();
+            assertSame(pending, list);
+            assertEquals(20, list.size());
+            assertEquals(41, list.get(0).getId());
+            assertNull(PageHelper.getLocalPage());
+        } finally {
+            PageHelper.clearPage();
+            sqlSession.close();
+        }
+    }
+}
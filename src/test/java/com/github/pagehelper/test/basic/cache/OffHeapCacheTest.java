@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic.cache;
+
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
+import com.github.pagehelper.cache.GuavaCache;
+import com.github.pagehelper.cache.OffHeapCache;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * 堆外缓存测试
+ */
+public class OffHeapCacheTest {
+
+    @Test
+    public void testPutGet() {
+        Cache<String, String> cache = CacheFactory.createSqlCache(OffHeapCache.class.getName(), "count", new Properties());
+        cache.put("select * from user where name = '刘睿'", "SELECT count(0) FROM user WHERE name = '刘睿'");
+        assertEquals("SELECT count(0) FROM user WHERE name = '刘睿'", cache.get("select *  from user\nwhere name = '刘睿'"));
+        assertNull(cache.get("select * from user"));
+        //覆盖
+        cache.put("select * from user where name = '刘睿'", "SELECT count(1) FROM user WHERE name = '刘睿'");
+        assertEquals("SELECT count(1) FROM user WHERE name = '刘睿'", cache.get("select * from user where name = '刘睿'"));
+    }
+
+    @Test
+    public void testEvict() {
+        Properties properties = new Properties();
+        properties.setProperty("page.offHeapBytes", "4096");
+        properties.setProperty("page.segmentBytes", "1024");
+        OffHeapCache<String, String> cache = new OffHeapCache<String, String>(properties, "page");
+        for (int i = 0; i < 200; i++) {
+            cache.put("key" + i, "select * from user where id = " + i);
+        }
+        //最早的段被淘汰
+        assertNull(cache.get("key0"));
+        assertEquals("select * from user where id = 199", cache.get("key199"));
+        assertTrue(cache.size() < 200);
+        //超过一段大小的不缓存
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            builder.append('x');
+        }
+        cache.put("large", builder.toString());
+        assertNull(cache.get("large"));
+        //超过一段大小时移除已有的值
+        cache.put("key199", builder.toString());
+        assertNull(cache.get("key199"));
+    }
+
+    @Test
+    public void testHeapValue() {
+        OffHeapCache<String, Object> cache = new OffHeapCache<String, Object>(new Properties(), "ms");
+        Object value = new Object();
+        cache.put("ms", value);
+        assertSame(value, cache.get("ms"));
+    }
+
+    @Test
+    public void testReplaceHeapValue() {
+        Properties properties = new Properties();
+        properties.setProperty("page.offHeapBytes", "2048");
+        properties.setProperty("page.segmentBytes", "1024");
+        OffHeapCache<String, Object> cache = new OffHeapCache<String, Object>(properties, "page");
+        cache.put("key", new Object());
+        cache.put("key", "select * from user");
+        assertEquals("select * from user", cache.get("key"));
+        //堆外的段被淘汰后不能读到堆内更早的值
+        for (int i = 0; i < 200; i++) {
+            cache.put("key" + i, "select * from user where id = " + i);
+        }
+        assertNull(cache.get("key"));
+    }
+
+    @Ignore("性能测试，手动执行")
+    @Test
+    public void testBenchmark() {
+        benchmark("GuavaCache", CacheFactory.createSqlCache(GuavaCache.class.getName(), "page", new Properties()));
+        benchmark("OffHeapCache", CacheFactory.createSqlCache(OffHeapCache.class.getName(), "page", new Properties()));
+    }
+
+    /**
+     * 堆外缓存的读取不比 GuavaCache 快，收益在于大量 SQL 不再占用堆内存（老年代）
+     */
+    @Ignore("性能测试，手动执行")
+    @Test
+    public void testRetainedHeap() {
+        Properties properties = new Properties();
+        properties.setProperty("page.maximumSize", "100000");
+        properties.setProperty("page.offHeapBytes", String.valueOf(256L * 1024 * 1024));
+        retainedHeap("GuavaCache", GuavaCache.class.getName(), properties);
+        retainedHeap("OffHeapCache", OffHeapCache.class.getName(), properties);
+    }
+
+    private void retainedHeap(String name, String sqlCacheClass, Properties properties) {
+        long before = usedHeap();
+        Cache<String, String> cache = CacheFactory.createSqlCache(sqlCacheClass, "page", properties);
+        for (int i = 0; i < 50000; i++) {
+            StringBuilder builder = new StringBuilder("select * from user where id in (");
+            for (int j = 0; j < 100; j++) {
+                builder.append(i).append(j).append(", ");
+            }
+            String sql = builder.append("0) order by id").toString();
+            cache.put(sql, sql + " LIMIT ? ");
+        }
+        long used = usedHeap() - before;
+        System.out.println(name + " retained heap: " + used / 1024 / 1024 + "MB, " + used / 50000 + " bytes/entry");
+        assertNotNull(cache);
+    }
+
+    private long usedHeap() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void benchmark(String name, Cache<String, String> cache) {
+        String[] sqls = new String[1000];
+        for (int i = 0; i < sqls.length; i++) {
+            StringBuilder builder = new StringBuilder("select * from user where id in (");
+            for (int j = 0; j < 50; j++) {
+                builder.append(i).append(j).append(", ");
+            }
+            sqls[i] = builder.append("0) order by id").toString();
+        }
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (String sql : sqls) {
+                cache.put(sql, sql);
+            }
+            long put = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                for (String sql : sqls) {
+                    cache.get(sql);
+                }
+            }
+            long get = System.nanoTime() - start;
+            System.out.println(name + " put: " + put / sqls.length + "ns/op, get: " + get / (sqls.length * 100) + "ns/op");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic.cache;
+
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
+import com.github.pagehelper.cache.SimpleCache;
+import com.github.pagehelper.util.SqlFingerprint;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * SQL 指纹缓存测试
+ */
+public class SqlFingerprintCacheTest {
+
+    @Test
+    public void testWhitespace() {
+        String sql1 = "select * from user\n  where id = ?\n  order by id";
+        String sql2 = "  select *  from user where\tid = ? order by id \n";
+        assertEquals(SqlFingerprint.of(sql1), SqlFingerprint.of(sql2));
+        assertTrue(SqlFingerprint.equivalent(sql1, sql2));
+        assertFalse(SqlFingerprint.equivalent(sql1, "select * from user where id = ? order by name"));
+    }
+
+    @Test
+    public void testQuoteAndComment() {
+        //引号中的空白不能规范化
+        assertNotEquals(SqlFingerprint.of("select * from user where name = 'a  b'"),
+                SqlFingerprint.of("select * from user where name = 'a b'"));
+        assertFalse(SqlFingerprint.equivalent("select * from user where name = 'a  b'",
+                "select * from user where name = 'a b'"));
+        //sql server 的 [列名] 中的空白不能规范化
+        assertNotEquals(SqlFingerprint.of("select [user  name] from [user]"),
+                SqlFingerprint.of("select [user name] from [user]"));
+        assertFalse(SqlFingerprint.equivalent("select [user  name] from [user]", "select [user name] from [user]"));
+        assertTrue(SqlFingerprint.equivalent("select [user  name]\n from  [user]", "select [user  name] from [user]"));
+        //行注释后的换行不能去掉
+        String sql1 = "select * from user -- comment\n where id = 1";
+        String sql2 = "select * from user -- comment where id = 1";
+        assertNotEquals(SqlFingerprint.of(sql1), SqlFingerprint.of(sql2));
+        assertFalse(SqlFingerprint.equivalent(sql1, sql2));
+        assertTrue(SqlFingerprint.equivalent(sql1, "select * from user -- comment\r\n     where   id = 1"));
+        //hint 保留
+        assertNotEquals(SqlFingerprint.of("/*keep orderby*/ select * from user order by id"),
+                SqlFingerprint.of("select * from user order by id"));
+        assertTrue(SqlFingerprint.equivalent("/*keep orderby*/ select *\nfrom user", "/*keep orderby*/   select * from user"));
+    }
+
+    @Test
+    public void testEscape() {
+        //MySQL 中 'a\'  b' 和 'a\' b' 是不同的字符串
+        assertFalse(SqlFingerprint.equivalent("select * from user where name = 'a\\'  b'",
+                "select * from user where name = 'a\\' b'"));
+        assertNotEquals(SqlFingerprint.of("select * from user where name = 'a\\'  b'"),
+                SqlFingerprint.of("select * from user where name = 'a\\' b'"));
+        //PostgreSQL 的 E'' 字符串
+        assertFalse(SqlFingerprint.equivalent("select * from user where name = E'a\\'  b'",
+                "select * from user where name = E'a\\' b'"));
+        //PostgreSQL 的 $$ 字符串
+        assertFalse(SqlFingerprint.equivalent("select * from user where name = $$a'  b$$",
+                "select * from user where name = $$a' b$$"));
+        assertFalse(SqlFingerprint.equivalent("select * from user where name = $tag$a  b$tag$",
+                "select * from user where name = $tag$a b$tag$"));
+        //转义之前的部分仍然规范化
+        assertTrue(SqlFingerprint.equivalent("select *\n  from user where name = 'a\\'  b'",
+                "select * from user where name = 'a\\'  b'"));
+    }
+
+    @Test
+    public void testCache() {
+        Cache<String, String> cache = CacheFactory.createSqlCache(SimpleCache.class.getName(), "count", new Properties());
+        cache.put("select * from user\n where id = ?", "SELECT count(0) FROM user WHERE id = ?");
+        assertEquals("SELECT count(0) FROM user WHERE id = ?", cache.get("select * from user where id = ?"));
+        assertEquals("SELECT count(0) FROM user WHERE id = ?", cache.get("  select *\tfrom   user where id = ?  "));
+        assertNull(cache.get("select * from user where id = 'a  b'"));
+        cache.put("select * from user where name = 'a\\'  b'", "count1");
+        assertNull(cache.get("select * from user where name = 'a\\' b'"));
+    }
+}
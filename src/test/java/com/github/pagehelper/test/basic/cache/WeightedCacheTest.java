@@ -0,0 +1,112 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.basic.cache;
+
+import com.github.pagehelper.cache.Cache;
+import com.github.pagehelper.cache.CacheFactory;
+import com.github.pagehelper.cache.CacheWeigher;
+import com.github.pagehelper.cache.GuavaCache;
+import com.github.pagehelper.cache.SimpleCache;
+import com.github.pagehelper.cache.WeightedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按内存大小淘汰的缓存测试
+ */
+public class WeightedCacheTest {
+
+    private String sql(int id, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'x');
+        return "select * from user where id = " + id + " and name = '" + new String(chars) + "'";
+    }
+
+    private void testEvict(String sqlCacheClass) {
+        Properties properties = new Properties();
+        properties.setProperty("page.maxWeightBytes", "40000");
+        Cache<String, String> cache = CacheFactory.createSqlCache(sqlCacheClass, "page", properties);
+        //每项（原始 sql 和改写后的 sql）大约 8KB，最多保留 4 项
+        for (int i = 0; i < 8; i++) {
+            String sql = sql(i, 2000);
+            cache.put(sql, sql);
+        }
+        int count = 0;
+        for (int i = 0; i < 8; i++) {
+            if (cache.get(sql(i, 2000)) != null) {
+                count++;
+            }
+        }
+        assertTrue(count <= 4);
+        assertNotNull(cache.get(sql(7, 2000)));
+        //小的 sql 可以保留很多
+        for (int i = 0; i < 20; i++) {
+            cache.put(sql(i, 1), "1");
+        }
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(cache.get(sql(i, 1)));
+        }
+    }
+
+    @Test
+    public void testSimpleCache() {
+        testEvict(SimpleCache.class.getName());
+    }
+
+    @Test
+    public void testGuavaCache() {
+        testEvict(GuavaCache.class.getName());
+    }
+
+    @Test
+    public void testRecentlyRead() {
+        int weight = CacheWeigher.weigh(sql(0, 1000), sql(0, 1000));
+        WeightedCache cache = new WeightedCache(new PerpetualCache("test"), weight * 3);
+        for (int i = 0; i < 3; i++) {
+            cache.putObject(sql(i, 1000), sql(i, 1000));
+        }
+        //读取过的项不会先被淘汰
+        assertNotNull(cache.getObject(sql(0, 1000)));
+        cache.putObject(sql(3, 1000), sql(3, 1000));
+        assertNotNull(cache.getObject(sql(0, 1000)));
+        assertNull(cache.getObject(sql(1, 1000)));
+        assertNotNull(cache.getObject(sql(3, 1000)));
+        assertTrue(cache.getTotalWeight() <= weight * 3);
+        cache.removeObject(sql(3, 1000));
+        cache.clear();
+        assertEquals(0, cache.getTotalWeight());
+    }
+
+    @Test
+    public void testWeigh() {
+        assertTrue(CacheWeigher.weigh(sql(1, 1000), sql(1, 1000)) > 4000);
+        assertTrue(CacheWeigher.weigh("a", null) < 100);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.autodialect;
+
+import com.github.pagehelper.dialect.helper.HsqldbDialect;
+import com.github.pagehelper.page.PageAutoDialect;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * cacheDialectByDataSource 测试，按 DataSource 实例缓存方言后不再获取连接
+ */
+public class DataSourceDialectCacheTest {
+
+    private MappedStatement createMappedStatement(final AtomicInteger connections) {
+        final DataSource target = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:dialectcache", "sa", "");
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("getConnection".equals(method.getName())) {
+                            connections.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        return new MappedStatement.Builder(configuration, "test",
+                new StaticSqlSource(configuration, "select 1"), SqlCommandType.SELECT).build();
+    }
+
+    private int query(boolean cache) {
+        Properties properties = new Properties();
+        properties.setProperty("autoRuntimeDialect", "true");
+        properties.setProperty("autoDialectClass", "old");
+        properties.setProperty("cacheDialectByDataSource", String.valueOf(cache));
+        PageAutoDialect autoDialect = new PageAutoDialect();
+        autoDialect.setProperties(properties);
+        AtomicInteger connections = new AtomicInteger();
+        MappedStatement ms = createMappedStatement(connections);
+        for (int i = 0; i < 3; i++) {
+            autoDialect.initDelegateDialect(ms, null);
+            Assert.assertTrue(autoDialect.getDelegate() instanceof HsqldbDialect);
+            autoDialect.clearDelegate();
+        }
+        return connections.get();
+    }
+
+    @Test
+    public void testCache() {
+        Assert.assertEquals(3, query(false));
+        Assert.assertEquals(1, query(true));
+    }
+}
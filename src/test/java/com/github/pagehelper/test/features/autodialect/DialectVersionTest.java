@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.autodialect;
+
+import com.github.pagehelper.dialect.AbstractHelperDialect;
+import com.github.pagehelper.dialect.auto.DefaultAutoDialect;
+import com.github.pagehelper.dialect.helper.*;
+import com.github.pagehelper.page.PageAutoDialect;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 根据数据库产品名称和版本选择方言
+ */
+public class DialectVersionTest {
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private DataSource createDataSource(final String productName, final int majorVersion) {
+        final DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{DatabaseMetaData.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getDatabaseProductName".equals(method.getName())) {
+                            return productName;
+                        }
+                        return "getDatabaseMajorVersion".equals(method.getName()) ? majorVersion : null;
+                    }
+                });
+        final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Connection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getMetaData".equals(method.getName()) ? metaData : null;
+                    }
+                });
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{DataSource.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getConnection".equals(method.getName())) {
+                            connections.incrementAndGet();
+                            return connection;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private AbstractHelperDialect extractDialect(String url, String productName, int majorVersion, Properties properties) {
+        return DefaultAutoDialect.DEFAULT.extractDialect(url, null, createDataSource(productName, majorVersion), properties);
+    }
+
+    @Test
+    public void testVersionAlias() {
+        Properties properties = new Properties();
+        Assert.assertTrue(extractDialect("jdbc:db2://localhost:50000/test", "DB2/LINUXX8664", 11, properties) instanceof Db2v11Dialect);
+        Assert.assertEquals(Db2Dialect.class, extractDialect("jdbc:db2://localhost:50000/test", "DB2/LINUXX8664", 10, properties).getClass());
+        //db2 for z/OS 11 不使用 db2v11
+        Assert.assertEquals(Db2Dialect.class, extractDialect("jdbc:db2://localhost:446/test", "DB2", 11, properties).getClass());
+        Assert.assertTrue(extractDialect("jdbc:oracle:thin:@localhost:1521:orcl", "Oracle", 19, properties) instanceof Oracle12cDialect);
+        //没有版本别名时不获取连接
+        connections.set(0);
+        Assert.assertTrue(extractDialect("jdbc:mysql://localhost/test", "MySQL", 8, properties) instanceof MySqlDialect);
+        Assert.assertEquals(0, connections.get());
+        //关闭版本识别
+        properties.setProperty("autoDialectVersion", "false");
+        Assert.assertEquals(OracleDialect.class, extractDialect("jdbc:oracle:thin:@localhost:1521:orcl", "Oracle", 19, properties).getClass());
+    }
+
+    public static class MyOracleDialect extends OracleDialect {
+    }
+
+    public static class MyDb2Dialect extends Db2Dialect {
+    }
+
+    @Test
+    public void testReplacedAlias() {
+        //替换 oracle 和 db2 的实现后，不再按版本切换到 oracle12c 和 db2v11
+        Properties properties = new Properties();
+        properties.setProperty("dialectAlias", "oracle=" + MyOracleDialect.class.getName()
+                + ";db2=" + MyDb2Dialect.class.getName());
+        new PageAutoDialect().setProperties(properties);
+        try {
+            Assert.assertEquals(MyOracleDialect.class,
+                    extractDialect("jdbc:oracle:thin:@localhost:1521:orcl", "Oracle", 19, properties).getClass());
+            Assert.assertEquals(MyDb2Dialect.class,
+                    extractDialect("jdbc:db2://localhost:50000/test", "DB2/LINUXX8664", 11, properties).getClass());
+        } finally {
+            PageAutoDialect.registerDialectAlias("oracle", OracleDialect.class);
+            PageAutoDialect.registerDialectAlias("db2", Db2Dialect.class);
+        }
+        Assert.assertTrue(extractDialect("jdbc:oracle:thin:@localhost:1521:orcl", "Oracle", 19, properties) instanceof Oracle12cDialect);
+    }
+
+    @Test
+    public void testProductName() {
+        Assert.assertEquals("sqlserver", PageAutoDialect.fromProductName("Microsoft SQL Server"));
+        Assert.assertEquals("postgresql", PageAutoDialect.fromProductName("PostgreSQL"));
+        Assert.assertEquals("mariadb", PageAutoDialect.fromProductName("MariaDB"));
+        Assert.assertNull(PageAutoDialect.fromProductName("Unknown"));
+        //jdbcUrl 无法识别时使用产品名称
+        Assert.assertTrue(extractDialect("jdbc:proxy://localhost/test", "PostgreSQL", 14, new Properties()) instanceof PostgreSqlDialect);
+    }
+
+    @Test
+    public void testSqlServerAuto() {
+        //sqlserver 默认不按版本切换
+        Assert.assertEquals(SqlServerDialect.class,
+                extractDialect("jdbc:sqlserver://localhost:1433", "Microsoft SQL Server", 15, new Properties()).getClass());
+        Properties properties = new Properties();
+        properties.setProperty("useSqlserver2012", "auto");
+        properties.setProperty("dialectAlias", "oracle@21=" + Oracle12cDialect.class.getName());
+        new PageAutoDialect().setProperties(properties);
+        try {
+            Assert.assertTrue(extractDialect("jdbc:sqlserver://localhost:1433", "Microsoft SQL Server", 15, properties) instanceof SqlServer2012Dialect);
+            Assert.assertEquals(SqlServerDialect.class,
+                    extractDialect("jdbc:sqlserver://localhost:1433", "Microsoft SQL Server", 10, properties).getClass());
+            Assert.assertEquals("oracle@21", PageAutoDialect.fromDatabaseVersion("oracle", createDataSource("Oracle", 23), properties));
+            Assert.assertEquals("oracle12c", PageAutoDialect.fromDatabaseVersion("oracle", createDataSource("Oracle", 19), properties));
+        } finally {
+            PageAutoDialect.registerDialectAlias("sqlserver", 0, "sqlserver");
+            PageAutoDialect.registerDialectAlias("oracle", 21, "oracle12c");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.autodialect;
+
+import com.github.pagehelper.dialect.AbstractHelperDialect;
+import com.github.pagehelper.dialect.auto.LookupKeyResolver;
+import com.github.pagehelper.dialect.helper.MySqlDialect;
+import com.github.pagehelper.dialect.helper.OracleDialect;
+import com.github.pagehelper.page.PageAutoDialect;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+
+/**
+ * 动态数据源通过数据源标识获取方言
+ */
+public class LookupKeyAutoDialectTest {
+    private static final ThreadLocal<String> TENANT = new ThreadLocal<String>();
+
+    /**
+     * 租户 a 开头的使用 mysql，其他使用 oracle 的 jdbc url
+     */
+    public static class TenantResolver implements LookupKeyResolver {
+        @Override
+        public Object getLookupKey(MappedStatement ms, DataSource dataSource) {
+            return TENANT.get();
+        }
+
+        @Override
+        public String getDialect(Object lookupKey, MappedStatement ms, DataSource dataSource) {
+            return lookupKey.toString().startsWith("a") ? "mysql" : "jdbc:oracle:thin:@localhost:1521:orcl";
+        }
+    }
+
+    private MappedStatement createMappedStatement() {
+        //不允许获取连接
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        return new MappedStatement.Builder(configuration, "test",
+                new StaticSqlSource(configuration, "select 1"), SqlCommandType.SELECT).build();
+    }
+
+    private AbstractHelperDialect getDialect(PageAutoDialect autoDialect, MappedStatement ms, String tenant) {
+        TENANT.set(tenant);
+        try {
+            autoDialect.initDelegateDialect(ms, null);
+            return autoDialect.getDelegate();
+        } finally {
+            autoDialect.clearDelegate();
+            TENANT.remove();
+        }
+    }
+
+    @Test
+    public void testLookupKey() {
+        Properties properties = new Properties();
+        properties.setProperty("autoRuntimeDialect", "true");
+        properties.setProperty("autoDialectClass", "lookup");
+        properties.setProperty("lookupKeyResolver", TenantResolver.class.getName());
+        properties.setProperty("dialect.maximumSize", "2");
+        properties.setProperty("dialect.size", "2");
+        PageAutoDialect autoDialect = new PageAutoDialect();
+        autoDialect.setProperties(properties);
+        MappedStatement ms = createMappedStatement();
+
+        AbstractHelperDialect a1 = getDialect(autoDialect, ms, "a1");
+        Assert.assertTrue(a1 instanceof MySqlDialect);
+        Assert.assertTrue(getDialect(autoDialect, ms, "b1") instanceof OracleDialect);
+        //同一种方言共用一个实例
+        Assert.assertSame(a1, getDialect(autoDialect, ms, "a2"));
+        //缓存淘汰后仍然是同一个实例
+        for (int i = 0; i < 10; i++) {
+            getDialect(autoDialect, ms, "c" + i);
+        }
+        Assert.assertSame(a1, getDialect(autoDialect, ms, "a1"));
+    }
+
+    @Test
+    public void testIgnoreDataSourceCache() {
+        Properties properties = new Properties();
+        properties.setProperty("autoRuntimeDialect", "true");
+        properties.setProperty("autoDialectClass", "lookup");
+        properties.setProperty("lookupKeyResolver", TenantResolver.class.getName());
+        properties.setProperty("cacheDialectByDataSource", "true");
+        PageAutoDialect autoDialect = new PageAutoDialect();
+        autoDialect.setProperties(properties);
+        MappedStatement ms = createMappedStatement();
+        //同一个 DataSource 的不同租户使用各自的方言
+        Assert.assertTrue(getDialect(autoDialect, ms, "a1") instanceof MySqlDialect);
+        Assert.assertTrue(getDialect(autoDialect, ms, "b1") instanceof OracleDialect);
+    }
+}
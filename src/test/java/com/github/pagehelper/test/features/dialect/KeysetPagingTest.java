@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.dialect;
+
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.dialect.AbstractHelperDialect;
+import com.github.pagehelper.dialect.helper.HsqldbDialect;
+import com.github.pagehelper.dialect.helper.MySqlDialect;
+import com.github.pagehelper.util.MybatisHelper;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+
+/**
+ * keysetThreshold 测试
+ */
+public class KeysetPagingTest {
+
+    private <T extends AbstractHelperDialect> T createDialect(T dialect) {
+        Properties properties = new Properties();
+        properties.setProperty("keysetThreshold", "100");
+        properties.setProperty("keysetColumns", "id, `code`");
+        dialect.setProperties(properties);
+        return dialect;
+    }
+
+    private List<Object> pageQuery(AbstractHelperDialect dialect, String sql, Object... params) {
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+        Map<String, Object> parameter = new HashMap<String, Object>();
+        for (int i = 0; i < params.length; i++) {
+            parameterMappings.add(new ParameterMapping.Builder(configuration, "p" + i, Object.class).build());
+            parameter.put("p" + i, params[i]);
+        }
+        MappedStatement ms = new MappedStatement.Builder(configuration, "test",
+                new StaticSqlSource(configuration, sql, parameterMappings), SqlCommandType.SELECT).build();
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        Map<String, Object> pageParameter = (Map<String, Object>) dialect.processParameterObject(ms, parameter, boundSql, new CacheKey());
+        String pageSql = dialect.getPageSql(ms, boundSql, pageParameter, RowBounds.DEFAULT, new CacheKey());
+        List<Object> result = new ArrayList<Object>();
+        result.add(pageSql);
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            result.add(pageParameter.get(parameterMapping.getProperty()));
+        }
+        return result;
+    }
+
+    @After
+    public void clear() {
+        PageHelper.clearPage();
+    }
+
+    @Test
+    public void testKeyset() {
+        HsqldbDialect dialect = createDialect(new HsqldbDialect());
+        PageHelper.startPage(21, 10);
+        List<Object> result = pageQuery(dialect, "select * from user where id > ? and name like ? order by id", 5, "a%");
+        Assert.assertEquals("SELECT * FROM user WHERE (id > ? AND name LIKE ?) AND id >= (SELECT id FROM user WHERE id > ? AND name LIKE ? ORDER BY id LIMIT 1 OFFSET ?) ORDER BY id LIMIT ?",
+                result.get(0));
+        Assert.assertEquals(Arrays.<Object>asList(5, "a%", 5, "a%", 200L, 10), result.subList(1, result.size()));
+
+        PageHelper.startPage(21, 10);
+        result = pageQuery(dialect, "select u.id, ? flag from user u where u.x = ? order by u.`code` desc", "f", 1);
+        Assert.assertEquals("SELECT u.id, ? flag FROM user u WHERE (u.x = ?) AND u.`code` <= (SELECT u.`code` FROM user u WHERE u.x = ? ORDER BY u.`code` DESC LIMIT 1 OFFSET ?) ORDER BY u.`code` DESC LIMIT ?",
+                result.get(0));
+        Assert.assertEquals(Arrays.<Object>asList("f", 1, 1, 200L, 10), result.subList(1, result.size()));
+    }
+
+    @Test
+    public void testFallback() {
+        MySqlDialect dialect = createDialect(new MySqlDialect());
+        //未达到阈值
+        PageHelper.startPage(2, 10);
+        Assert.assertEquals("select * from user order by id\n LIMIT ?, ? ", pageQuery(dialect, "select * from user order by id").get(0));
+        //不是唯一列排序
+        PageHelper.startPage(21, 10);
+        Assert.assertEquals("select * from user order by name\n LIMIT ?, ? ", pageQuery(dialect, "select * from user order by name").get(0));
+        PageHelper.startPage(21, 10);
+        Assert.assertEquals("select * from user order by id, name\n LIMIT ?, ? ", pageQuery(dialect, "select * from user order by id, name").get(0));
+        //关联查询中 key 不唯一
+        PageHelper.startPage(21, 10);
+        Assert.assertEquals("select u.id from user u join t on t.uid = u.id order by u.id\n LIMIT ?, ? ",
+                pageQuery(dialect, "select u.id from user u join t on t.uid = u.id order by u.id").get(0));
+        //分组
+        PageHelper.startPage(21, 10);
+        Assert.assertEquals("select id from user group by id order by id\n LIMIT ?, ? ", pageQuery(dialect, "select id from user group by id order by id").get(0));
+        //未配置时不启用
+        MySqlDialect disabled = new MySqlDialect();
+        disabled.setProperties(new Properties());
+        PageHelper.startPage(21, 10);
+        Assert.assertEquals("select * from user order by id\n LIMIT ?, ? ", pageQuery(disabled, "select * from user order by id").get(0));
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        HsqldbDialect dialect = createDialect(new HsqldbDialect());
+        for (int pageNum = 11; pageNum <= 19; pageNum += 4) {
+            PageHelper.startPage(pageNum, 10);
+            List<Object> result = pageQuery(dialect, "select * from user where id > ? order by id desc", 3);
+            SqlSession sqlSession = MybatisHelper.getSqlSession();
+            try {
+                PreparedStatement ps = sqlSession.getConnection().prepareStatement((String) result.get(0));
+                for (int i = 1; i < result.size(); i++) {
+                    ps.setObject(i, result.get(i));
+                }
+                ResultSet rs = ps.executeQuery();
+                List<Integer> ids = new ArrayList<Integer>();
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                }
+                rs.close();
+                ps.close();
+                //183 到 4 倒序
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int id = 183 - (pageNum - 1) * 10; id >= 4 && expected.size() < 10; id--) {
+                    expected.add(id);
+                }
+                Assert.assertEquals(expected, ids);
+            } finally {
+                sqlSession.close();
+            }
+        }
+    }
+}
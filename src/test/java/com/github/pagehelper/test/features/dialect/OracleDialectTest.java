@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.dialect;
+
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.dialect.AbstractHelperDialect;
+import com.github.pagehelper.dialect.auto.DefaultAutoDialect;
+import com.github.pagehelper.dialect.helper.Oracle12cDialect;
+import com.github.pagehelper.dialect.helper.OracleDialect;
+import com.github.pagehelper.page.PageAutoDialect;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.*;
+
+/**
+ * oracle 分页 sql 和 oracle 12c 自动识别测试
+ */
+public class OracleDialectTest {
+
+    private List<Object> pageQuery(AbstractHelperDialect dialect, String sql) {
+        dialect.setProperties(new Properties());
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+        parameterMappings.add(new ParameterMapping.Builder(configuration, "id", Object.class).build());
+        Map<String, Object> parameter = new HashMap<String, Object>();
+        parameter.put("id", 1);
+        MappedStatement ms = new MappedStatement.Builder(configuration, "test",
+                new StaticSqlSource(configuration, sql, parameterMappings), SqlCommandType.SELECT).build();
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        Map<String, Object> pageParameter = (Map<String, Object>) dialect.processParameterObject(ms, parameter, boundSql, new CacheKey());
+        String pageSql = dialect.getPageSql(ms, boundSql, pageParameter, RowBounds.DEFAULT, new CacheKey());
+        List<Object> result = new ArrayList<Object>();
+        result.add(pageSql);
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            result.add(pageParameter.get(parameterMapping.getProperty()));
+        }
+        return result;
+    }
+
+    private DataSource createDataSource(final int majorVersion) {
+        final DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{DatabaseMetaData.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getDatabaseMajorVersion".equals(method.getName()) ? majorVersion : null;
+                    }
+                });
+        final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Connection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getMetaData".equals(method.getName()) ? metaData : null;
+                    }
+                });
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{DataSource.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getConnection".equals(method.getName()) ? connection : null;
+                    }
+                });
+    }
+
+    @After
+    public void clear() {
+        PageHelper.clearPage();
+    }
+
+    @Test
+    public void testStopKey() {
+        PageHelper.startPage(3, 10);
+        List<Object> result = pageQuery(new OracleDialect(), "select * from user where id > ? order by name");
+        Assert.assertEquals("SELECT * FROM (  SELECT TMP_PAGE.*, ROWNUM PAGEHELPER_ROW_ID FROM ( \n" +
+                "select * from user where id > ? order by name\n" +
+                " ) TMP_PAGE WHERE ROWNUM <= ?  ) WHERE PAGEHELPER_ROW_ID > ? ", result.get(0));
+        Assert.assertEquals(Arrays.<Object>asList(1, 30L, 20L), result.subList(1, result.size()));
+    }
+
+    @Test
+    public void testOracle12c() {
+        PageHelper.startPage(3, 10);
+        List<Object> result = pageQuery(new Oracle12cDialect(), "select * from user where id > ? order by name");
+        Assert.assertEquals("select * from user where id > ? order by name\n OFFSET ? ROWS FETCH NEXT ? ROWS ONLY ", result.get(0));
+        Assert.assertEquals(Arrays.<Object>asList(1, 20L, 10), result.subList(1, result.size()));
+    }
+
+    @Test
+    public void testDatabaseVersion() {
+        Properties properties = new Properties();
+        Assert.assertEquals("oracle12c", PageAutoDialect.fromDatabaseVersion("oracle", createDataSource(19), properties));
+        Assert.assertEquals("oracle", PageAutoDialect.fromDatabaseVersion("oracle", createDataSource(11), properties));
+        Assert.assertEquals("mysql", PageAutoDialect.fromDatabaseVersion("mysql", createDataSource(19), properties));
+
+        String url = "jdbc:oracle:thin:@localhost:1521:orcl";
+        Assert.assertTrue(DefaultAutoDialect.DEFAULT.extractDialect(url, null, createDataSource(12), properties) instanceof Oracle12cDialect);
+        AbstractHelperDialect dialect = DefaultAutoDialect.DEFAULT.extractDialect(url, null, createDataSource(11), properties);
+        Assert.assertEquals(OracleDialect.class, dialect.getClass());
+    }
+}
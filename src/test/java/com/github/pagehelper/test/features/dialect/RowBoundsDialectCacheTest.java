@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.dialect;
+
+import com.github.pagehelper.dialect.rowbounds.MySqlRowBoundsDialect;
+import com.github.pagehelper.dialect.rowbounds.SqlServerRowBoundsDialect;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Properties;
+
+/**
+ * RowBounds 方言的 SQL 缓存测试
+ */
+public class RowBoundsDialectCacheTest {
+
+    private BoundSql boundSql(String sql) {
+        Configuration configuration = new Configuration();
+        MappedStatement ms = new MappedStatement.Builder(configuration, "test",
+                new StaticSqlSource(configuration, sql, new java.util.ArrayList<ParameterMapping>()), SqlCommandType.SELECT).build();
+        return ms.getBoundSql(null);
+    }
+
+    @Test
+    public void testSqlServer() {
+        SqlServerRowBoundsDialect dialect = new SqlServerRowBoundsDialect();
+        dialect.setProperties(new Properties());
+        String sql = "select * from user with(nolock) where id > 10 order by id";
+        Assert.assertEquals("SELECT TOP 10 * FROM (SELECT ROW_NUMBER() OVER (ORDER BY id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM user with(nolock) WHERE id > 10) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > 0 ORDER BY PAGE_ROW_NUMBER",
+                dialect.getPageSql(sql, new RowBounds(0, 10), new CacheKey()));
+        //第二次使用缓存的模板
+        Assert.assertEquals("SELECT TOP 20 * FROM (SELECT ROW_NUMBER() OVER (ORDER BY id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM user with(nolock) WHERE id > 10) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > 40 ORDER BY PAGE_ROW_NUMBER",
+                dialect.getPageSql("select *  from user with(nolock)\n where id > 10 order by id", new RowBounds(40, 20), new CacheKey()));
+        String countSql = dialect.getCountSql(null, boundSql(sql), null, new RowBounds(0, 10), new CacheKey());
+        Assert.assertEquals("SELECT count(0) FROM user with(nolock) WHERE id > 10", countSql);
+        Assert.assertSame(countSql, dialect.getCountSql(null, boundSql(sql), null, new RowBounds(0, 10), new CacheKey()));
+    }
+
+    @Test
+    public void testCount() {
+        MySqlRowBoundsDialect dialect = new MySqlRowBoundsDialect();
+        dialect.setProperties(new Properties());
+        String countSql = dialect.getCountSql(null, boundSql("select * from user order by id"), null, new RowBounds(0, 10), new CacheKey());
+        Assert.assertEquals("SELECT count(0) FROM user", countSql);
+        Assert.assertSame(countSql, dialect.getCountSql(null, boundSql("select * from user order by id"), null, new RowBounds(0, 10), new CacheKey()));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.dialect;
+
+import com.github.pagehelper.JSqlParser;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.dialect.helper.SqlServer2012Dialect;
+import com.github.pagehelper.dialect.helper.SqlServerDialect;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.Statement;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * sqlServerParameterPaging 测试
+ */
+public class SqlServerParameterPagingTest {
+
+    /**
+     * 记录解析次数
+     */
+    public static class CountingJSqlParser implements JSqlParser {
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public Statement parse(String statementReader) throws JSQLParserException {
+            COUNT.incrementAndGet();
+            return DEFAULT.parse(statementReader);
+        }
+    }
+
+    private SqlServerDialect createDialect(boolean parameterPaging) {
+        Properties properties = new Properties();
+        properties.setProperty("sqlParser", CountingJSqlParser.class.getName());
+        properties.setProperty("sqlServerParameterPaging", String.valueOf(parameterPaging));
+        SqlServerDialect dialect = new SqlServerDialect();
+        dialect.setProperties(properties);
+        return dialect;
+    }
+
+    private List<String> pageQuery(SqlServerDialect dialect, String sql, String... params) {
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+        for (String param : params) {
+            parameterMappings.add(new ParameterMapping.Builder(configuration, param, Object.class).build());
+        }
+        MappedStatement ms = new MappedStatement.Builder(configuration, "test",
+                new StaticSqlSource(configuration, sql, parameterMappings), SqlCommandType.SELECT).build();
+        Map<String, Object> parameter = new HashMap<String, Object>();
+        for (String param : params) {
+            parameter.put(param, 1);
+        }
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        Map<String, Object> pageParameter = (Map<String, Object>) dialect.processParameterObject(ms, parameter, boundSql, new CacheKey());
+        String pageSql = dialect.getPageSql(ms, boundSql, pageParameter, RowBounds.DEFAULT, new CacheKey());
+        List<String> result = new ArrayList<String>();
+        result.add(pageSql);
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            result.add(parameterMapping.getProperty() + "=" + pageParameter.get(parameterMapping.getProperty()));
+        }
+        return result;
+    }
+
+    @After
+    public void clear() {
+        PageHelper.clearPage();
+    }
+
+    @Test
+    public void testParameterPaging() {
+        SqlServerDialect dialect = createDialect(true);
+        PageHelper.startPage(3, 10);
+        List<String> result = pageQuery(dialect, "select * from user where id > ? order by id", "id");
+        Assert.assertEquals("SELECT TOP (?) * FROM (SELECT ROW_NUMBER() OVER (ORDER BY id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM user WHERE id > ?) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > ? ORDER BY PAGE_ROW_NUMBER",
+                result.get(0));
+        Assert.assertEquals(Arrays.asList("Second_PageHelper=10", "id=1", "First_PageHelper=20"), result.subList(1, result.size()));
+        //同一个 sql 不同页码的 sql 相同
+        PageHelper.startPage(5, 10);
+        Assert.assertEquals(result.get(0), pageQuery(dialect, "select * from user where id > ? order by id", "id").get(0));
+    }
+
+    @Test
+    public void testParameterPagingWith() {
+        SqlServerDialect dialect = createDialect(true);
+        PageHelper.startPage(2, 10);
+        List<String> result = pageQuery(dialect, "with x as (select * from user where id > ?) select * from x where name = ? order by id", "id", "name");
+        Assert.assertEquals("WITH x AS (SELECT * FROM user WHERE id > ?) SELECT TOP (?) * FROM (SELECT ROW_NUMBER() OVER (ORDER BY id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM x WHERE name = ?) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > ? ORDER BY PAGE_ROW_NUMBER",
+                result.get(0));
+        Assert.assertEquals(Arrays.asList("id=1", "Second_PageHelper=10", "name=1", "First_PageHelper=10"), result.subList(1, result.size()));
+    }
+
+    @Test
+    public void testLiteralPaging() {
+        SqlServerDialect dialect = createDialect(false);
+        PageHelper.startPage(3, 10);
+        List<String> result = pageQuery(dialect, "select * from user where id > ? order by id", "id");
+        Assert.assertEquals("SELECT TOP 10 * FROM (SELECT ROW_NUMBER() OVER (ORDER BY id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM user WHERE id > ?) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > 20 ORDER BY PAGE_ROW_NUMBER",
+                result.get(0));
+        Assert.assertEquals(Arrays.asList("id=1"), result.subList(1, result.size()));
+    }
+
+    @Test
+    public void testOrderByPaging() {
+        SqlServerDialect dialect = createDialect(false);
+        String sql = "select * from user with(nolock) where id > ? order by id";
+        int count = CountingJSqlParser.COUNT.get();
+        PageHelper.startPage(3, 10).setOrderBy("name desc, id");
+        Assert.assertEquals("SELECT TOP 10 * FROM (SELECT ROW_NUMBER() OVER (ORDER BY name DESC, id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM user WITH(NOLOCK) WHERE id > ?) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > 20 ORDER BY PAGE_ROW_NUMBER",
+                pageQuery(dialect, sql, "id").get(0));
+        //order by 和分页共用一次解析，再次查询时使用缓存
+        PageHelper.startPage(4, 10).setOrderBy("name desc, id");
+        Assert.assertEquals("SELECT TOP 10 * FROM (SELECT ROW_NUMBER() OVER (ORDER BY name DESC, id) PAGE_ROW_NUMBER, * FROM (SELECT * FROM user WITH(NOLOCK) WHERE id > ?) AS PAGE_TABLE_ALIAS) AS PAGE_TABLE_ALIAS WHERE PAGE_ROW_NUMBER > 30 ORDER BY PAGE_ROW_NUMBER",
+                pageQuery(dialect, sql, "id").get(0));
+        //解析 sql 和 order by 各一次
+        Assert.assertEquals(2, CountingJSqlParser.COUNT.get() - count);
+        //只排序
+        PageHelper.clearPage();
+        PageHelper.orderBy("name");
+        Assert.assertEquals("SELECT * FROM user WITH(NOLOCK) WHERE id > ? order by name", pageQuery(dialect, sql, "id").get(0));
+    }
+
+    @Test
+    public void testSqlServer2012OrderBy() {
+        SqlServer2012Dialect dialect = new SqlServer2012Dialect();
+        dialect.setProperties(new Properties());
+        String sql = "select * from user with(nolock) where id > ?";
+        PageHelper.startPage(3, 10).setOrderBy("name desc, id");
+        List<String> result = pageQuery(dialect, sql, "id");
+        Assert.assertEquals("SELECT * FROM user WITH(NOLOCK) WHERE id > ? order by name desc, id\n OFFSET ? ROWS FETCH NEXT ? ROWS ONLY ", result.get(0));
+        Assert.assertEquals(Arrays.asList("id=1", "First_PageHelper=20", "Second_PageHelper=10"), result.subList(1, result.size()));
+        //只排序
+        PageHelper.clearPage();
+        PageHelper.orderBy("name");
+        Assert.assertEquals("SELECT * FROM user WITH(NOLOCK) WHERE id > ? order by name", pageQuery(dialect, sql, "id").get(0));
+    }
+}
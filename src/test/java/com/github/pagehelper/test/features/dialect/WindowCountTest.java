@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2022 abel533@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.pagehelper.test.features.dialect;
+
+import com.github.pagehelper.JSqlParser;
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageInterceptor;
+import com.github.pagehelper.dialect.helper.HsqldbDialect;
+import com.github.pagehelper.parser.WindowCountSqlParser;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.*;
+import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * windowCount 测试
+ */
+public class WindowCountTest {
+    private static SqlSessionFactory sqlSessionFactory;
+    private static SqlCounter        sqlCounter = new SqlCounter();
+
+    /**
+     * hsqldb 不支持窗口函数，这里用标量子查询模拟总数列
+     */
+    public static class WindowCountDialect extends HsqldbDialect {
+        @Override
+        protected boolean supportWindowCount() {
+            return true;
+        }
+
+        @Override
+        protected String getWindowCountSql(String sql) {
+            return sql.replace(" from ", ", (select count(*) from window_count) PAGEHELPER_TOTAL from ");
+        }
+    }
+
+    /**
+     * 记录执行的 sql
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+    public static class SqlCounter implements Interceptor {
+        private final List<String> sqls = new ArrayList<String>();
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            sqls.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+            return invocation.proceed();
+        }
+
+        @Override
+        public Object plugin(Object target) {
+            return Plugin.wrap(target, this);
+        }
+
+        @Override
+        public void setProperties(Properties properties) {
+        }
+    }
+
+    @BeforeClass
+    public static void init() throws Exception {
+        UnpooledDataSource dataSource = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:windowcount", "sa", "");
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        PageInterceptor pageInterceptor = new PageInterceptor();
+        Properties properties = new Properties();
+        properties.setProperty("helperDialect", WindowCountDialect.class.getName());
+        properties.setProperty("windowCount", "true");
+        pageInterceptor.setProperties(properties);
+        configuration.addInterceptor(pageInterceptor);
+        configuration.addInterceptor(sqlCounter);
+        ResultMap resultMap = new ResultMap.Builder(configuration, "windowCountMap", Map.class, new ArrayList<ResultMapping>()).build();
+        configuration.addMappedStatement(new MappedStatement.Builder(configuration, "selectWindowCount",
+                new StaticSqlSource(configuration, "select id, name from window_count order by id"), SqlCommandType.SELECT)
+                .resultMaps(Collections.singletonList(resultMap)).build());
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+            Statement statement = sqlSession.getConnection().createStatement();
+            statement.execute("create table window_count (id int primary key, name varchar(32))");
+            for (int i = 1; i <= 25; i++) {
+                statement.execute("insert into window_count values (" + i + ", 'name" + i + "')");
+            }
+            statement.close();
+            sqlSession.commit();
+        } finally {
+            sqlSession.close();
+        }
+    }
+
+    @After
+    public void clear() {
+        PageHelper.clearPage();
+    }
+
+    private Page<Map<String, Object>> select(SqlSession sqlSession, Page<?> page) {
+        sqlCounter.sqls.clear();
+        List<Map<String, Object>> list = sqlSession.selectList("selectWindowCount");
+        return (Page<Map<String, Object>>) list;
+    }
+
+    @Test
+    public void testWindowCountSql() {
+        WindowCountSqlParser parser = new WindowCountSqlParser(JSqlParser.DEFAULT);
+        Assert.assertEquals("SELECT id, name, COUNT(*) OVER () PAGEHELPER_TOTAL FROM user WHERE id > ? ORDER BY id",
+                parser.convertToWindowCountSql("select id, name from user where id > ? order by id", true));
+        Assert.assertEquals("SELECT *, COUNT(*) OVER () PAGEHELPER_TOTAL FROM user",
+                parser.convertToWindowCountSql("select * from user", true));
+        Assert.assertEquals("SELECT u.*, COUNT(*) OVER () PAGEHELPER_TOTAL FROM user u",
+                parser.convertToWindowCountSql("select u.* from user u", false));
+        //oracle 不支持 SELECT *, ...
+        Assert.assertNull(parser.convertToWindowCountSql("select * from user", false));
+        //窗口函数在 distinct 之前计算
+        Assert.assertNull(parser.convertToWindowCountSql("select distinct name from user", true));
+        Assert.assertNull(parser.convertToWindowCountSql("select id from user union select id from role", true));
+        Assert.assertNull(parser.convertToWindowCountSql("select id from user limit 10", true));
+    }
+
+    @Test
+    public void testWindowCount() {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+            Page<Map<String, Object>> page = select(sqlSession, PageHelper.startPage(1, 10));
+            Assert.assertEquals(1, sqlCounter.sqls.size());
+            Assert.assertTrue(sqlCounter.sqls.get(0).contains("PAGEHELPER_TOTAL"));
+            Assert.assertEquals(25, page.getTotal());
+            Assert.assertEquals(10, page.size());
+            //结果中不包含总数列
+            Assert.assertEquals(new HashSet<String>(Arrays.asList("ID", "NAME")), page.get(0).keySet());
+
+            page = select(sqlSession, PageHelper.startPage(3, 10));
+            Assert.assertEquals(1, sqlCounter.sqls.size());
+            Assert.assertEquals(25, page.getTotal());
+            Assert.assertEquals(5, page.size());
+            Assert.assertEquals(21, page.get(0).get("ID"));
+
+            //一级缓存命中时没有总数，执行 count 查询
+            page = select(sqlSession, PageHelper.startPage(3, 10));
+            Assert.assertEquals(1, sqlCounter.sqls.size());
+            Assert.assertFalse(sqlCounter.sqls.get(0).contains("PAGEHELPER_TOTAL"));
+            Assert.assertEquals(25, page.getTotal());
+            Assert.assertEquals(5, page.size());
+        } finally {
+            sqlSession.close();
+        }
+    }
+
+    @Test
+    public void testFallback() {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+            //超出总页数时没有数据，执行 count 查询
+            Page<Map<String, Object>> page = select(sqlSession, PageHelper.startPage(4, 10));
+            Assert.assertEquals(2, sqlCounter.sqls.size());
+            Assert.assertEquals(25, page.getTotal());
+            Assert.assertEquals(0, page.size());
+
+            //分页合理化时需要先查询总数
+            sqlSession.clearCache();
+            page = select(sqlSession, PageHelper.startPage(4, 10, true, true, null));
+            Assert.assertEquals(2, sqlCounter.sqls.size());
+            Assert.assertFalse(sqlCounter.sqls.get(1).contains("PAGEHELPER_TOTAL"));
+            Assert.assertEquals(25, page.getTotal());
+            Assert.assertEquals(3, page.getPageNum());
+            Assert.assertEquals(5, page.size());
+        } finally {
+            sqlSession.close();
+        }
+    }
+}
@@ -87,6 +87,10 @@ public class MybatisHelper {
         });
     }
 
+    public static SqlSessionFactory getSqlSessionFactory() {
+        return sqlSessionFactory;
+    }
+
     /**
      * 获取Session
      *